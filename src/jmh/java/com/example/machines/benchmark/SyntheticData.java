@@ -0,0 +1,189 @@
+package com.example.machines.benchmark;
+
+import com.example.machines.entity.Cart;
+import com.example.machines.entity.CartItem;
+import com.example.machines.entity.Order;
+import com.example.machines.entity.OrderItem;
+import com.example.machines.entity.Product;
+import com.example.machines.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalog and order history used by the JMH benchmarks.
+ * Values are shaped like production data (brand slugs, gallery images, highlights,
+ * specification JSON, scheduled prices on a share of the catalog).
+ */
+public final class SyntheticData {
+
+    private static final String[] BRANDS = {
+        "Usha", "Singer", "Brother", "Jack", "Juki", "Merritt", "Janome", "Bernette"
+    };
+
+    private static final String[] TYPES = {
+        "Automatic Zig-Zag", "Computerised", "Straight Stitch", "Overlock", "Embroidery", "Industrial Lockstitch"
+    };
+
+    private static final String[] CITIES = {
+        "Vijayawada", "Guntur", "Visakhapatnam", "Hyderabad", "Tirupati", "Nellore"
+    };
+
+    private SyntheticData() {
+    }
+
+    public static List<Product> products(int count) {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 10, 0);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            String type = TYPES[random.nextInt(TYPES.length)];
+            BigDecimal price = BigDecimal.valueOf(4_000 + random.nextInt(60_000), 0).setScale(2);
+
+            Product product = new Product();
+            product.setId((long) i);
+            product.setTitle(brand + " " + type + " Sewing Machine Model " + i);
+            product.setDescription("The " + brand + " " + type + " machine offers " + (10 + random.nextInt(200))
+                    + " built-in stitches, an automatic needle threader & a heavy-duty metal frame for <daily> use. "
+                    + "Ideal for tailoring units, boutiques and home sewing.");
+            product.setBrandName(brand);
+            product.setBrandSlug(brand.toLowerCase() + "-" + type.toLowerCase().replace(' ', '-') + "-" + i);
+            product.setBrandLogoUrl("https://res.cloudinary.com/demo/image/upload/brands/" + brand.toLowerCase() + ".png");
+            product.setPrice(price);
+            product.setOriginalPrice(price.add(BigDecimal.valueOf(1_500)));
+            product.setImageUrl("https://res.cloudinary.com/demo/image/upload/v1700000000/sewing%20machines/p" + i + ".jpg");
+            product.setMainImageUrl(product.getImageUrl());
+            List<String> gallery = new ArrayList<>();
+            for (int g = 0; g < 4; g++) {
+                gallery.add("https://res.cloudinary.com/demo/image/upload/v1700000000/sewing%20machines/p" + i + "_" + g + ".jpg");
+            }
+            product.setGalleryImages(gallery);
+            product.setIsActive(true);
+            product.setInStock(random.nextInt(10) > 0);
+            product.setStockQuantity(random.nextInt(100));
+            product.setIsOnSale(random.nextInt(4) == 0);
+            product.setIsNew(random.nextInt(5) == 0);
+            product.setRating(BigDecimal.valueOf(300 + random.nextInt(200), 2));
+            product.setReviewCount(random.nextInt(500));
+            if (random.nextInt(10) == 0) {
+                product.setScheduledPrice(price.subtract(BigDecimal.valueOf(500)));
+                product.setPriceStartDate(base.plusDays(random.nextInt(30)));
+                product.setPriceEndDate(base.plusDays(30 + random.nextInt(30)));
+                product.setOriginalPriceBeforeSchedule(price);
+            }
+            product.setHighlights(List.of(
+                    (10 + random.nextInt(200)) + " built-in stitches",
+                    "Automatic needle threader",
+                    "Free arm for cuffs and sleeves",
+                    "LED sewing light",
+                    (1 + random.nextInt(5)) + " year warranty"));
+            product.setSpecificationsJson("{\"type\":\"" + type + "\",\"motor\":\"" + (70 + random.nextInt(80))
+                    + "W\",\"stitches\":" + (10 + random.nextInt(200)) + ",\"weight\":\"" + (5 + random.nextInt(10)) + " kg\"}");
+            product.setCreatedAt(base.plusMinutes(i));
+            product.setUpdatedAt(base.plusMinutes(i * 2L));
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Builds an order history referencing the given products. Shipping strings are shared
+     * between orders so a million orders fit comfortably in the 3 GB heap OrderResponseBenchmark
+     * forks with.
+     */
+    public static List<Order> orders(int count, List<Product> products) {
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Order.OrderStatus[] statuses = Order.OrderStatus.values();
+        List<User> users = users(1_000);
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Order order = new Order();
+            order.setId((long) i);
+            order.setOrderNumber("ORD-" + (1_700_000_000_000L + i));
+            order.setUser(users.get(random.nextInt(users.size())));
+            order.setStatus(statuses[random.nextInt(statuses.length)]);
+            order.setPaymentStatus(order.getStatus() == Order.OrderStatus.PENDING ? "pending" : "paid");
+
+            int itemCount = 1 + random.nextInt(3);
+            List<OrderItem> items = new ArrayList<>(itemCount);
+            BigDecimal subtotal = BigDecimal.ZERO;
+            BigDecimal total = BigDecimal.ZERO;
+            for (int j = 0; j < itemCount; j++) {
+                Product product = products.get(random.nextInt(products.size()));
+                int quantity = 1 + random.nextInt(2);
+                OrderItem item = new OrderItem();
+                item.setId((long) i * 4 + j);
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setProductName(product.getTitle());
+                item.setQuantity(quantity);
+                item.setUnitPrice(product.getPrice());
+                item.setOriginalPrice(product.getOriginalPrice());
+                item.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+                subtotal = subtotal.add(product.getOriginalPrice().multiply(BigDecimal.valueOf(quantity)));
+                total = total.add(item.getTotalPrice());
+                items.add(item);
+            }
+            order.setItems(items);
+            order.setSubtotal(subtotal);
+            order.setDiscount(subtotal.subtract(total));
+            order.setDeliveryCharge(BigDecimal.ZERO);
+            order.setTotal(total);
+
+            String city = CITIES[i % CITIES.length];
+            order.setShippingName(order.getUser().getName());
+            order.setShippingPhone(order.getUser().getPhone());
+            order.setShippingEmail(order.getUser().getEmail());
+            order.setShippingAddress("Door No. 12-3-45, Main Road");
+            order.setShippingCity(city);
+            order.setShippingState("Andhra Pradesh");
+            order.setShippingPincode("520001");
+            order.setWhatsappSent(random.nextBoolean());
+            order.setCreatedAt(base.plusSeconds(i * 30L));
+            order.setUpdatedAt(order.getCreatedAt());
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    public static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setEmail("customer" + i + "@example.com");
+            user.setName("Customer " + i);
+            user.setPhone("98480" + String.format("%05d", i));
+            users.add(user);
+        }
+        return users;
+    }
+
+    public static Cart cart(int itemCount, List<Product> products) {
+        Cart cart = new Cart();
+        cart.setId(1L);
+        List<CartItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            Product product = products.get((i * 31) % products.size());
+            CartItem item = new CartItem();
+            item.setId((long) i + 1);
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(1 + (i % 3));
+            item.setPrice(product.getPrice());
+            item.setOriginalPrice(product.getOriginalPrice());
+            item.setProductName(product.getTitle());
+            item.setProductImage(product.getMainImageUrl());
+            item.setBrandName(product.getBrandName());
+            item.setBrandSlug(product.getBrandSlug());
+            items.add(item);
+        }
+        cart.setItems(items);
+        return cart;
+    }
+}
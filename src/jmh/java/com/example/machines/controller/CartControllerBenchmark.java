@@ -0,0 +1,34 @@
+package com.example.machines.controller;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.dto.CartResponse;
+import com.example.machines.entity.Cart;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartControllerBenchmark {
+
+    @Param({"3", "50"})
+    private int itemCount;
+
+    private CartController cartController;
+    private Cart cart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cartController = new CartController();
+        cart = SyntheticData.cart(itemCount, SyntheticData.products(10_000));
+    }
+
+    @Benchmark
+    public CartResponse convertToResponse() {
+        return cartController.convertToResponse(cart);
+    }
+}
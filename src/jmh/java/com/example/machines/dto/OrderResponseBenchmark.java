@@ -0,0 +1,42 @@
+package com.example.machines.dto;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.entity.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps orders from a one-million-order history, walking the list so each call
+ * touches a different order (as the admin order listing does).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class OrderResponseBenchmark {
+
+    @Param({"1000000"})
+    private int orderCount;
+
+    @Param({"10000"})
+    private int productCount;
+
+    private List<Order> orders;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orders = SyntheticData.orders(orderCount, SyntheticData.products(productCount));
+    }
+
+    @Benchmark
+    public OrderResponse fromEntity() {
+        Order order = orders.get(cursor);
+        cursor = cursor + 1 == orderCount ? 0 : cursor + 1;
+        return OrderResponse.fromEntity(order);
+    }
+}
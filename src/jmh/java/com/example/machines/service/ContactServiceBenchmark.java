@@ -0,0 +1,72 @@
+package com.example.machines.service;
+
+import com.example.machines.dto.ContactRequest;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactServiceBenchmark {
+
+    private static final String[] EMAILS = {
+        "customer@example.com", "first.last+orders@mail.co.in", "bad..dots@example.com",
+        "no-at-symbol.example.com", "someone@sub.domain.example.org", "x@y"
+    };
+
+    private static final String[] PHONES = {
+        "9848012345", "+919848012345", "09848012345", "12345", "+91 98480 12345", "5848012345"
+    };
+
+    private ContactService contactService;
+    private ContactRequest request;
+    private String message;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contactService = new ContactService();
+        ReflectionTestUtils.setField(contactService, "emailService", Mockito.mock(EmailService.class, Mockito.withSettings().stubOnly()));
+        ReflectionTestUtils.setField(contactService, "adminEmail", "admin@example.com");
+        ReflectionTestUtils.setField(contactService, "adminPhone", "+91 9848012345");
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 450; i++) {
+            text.append("word").append(i % 17).append(i % 5 == 0 ? "\n" : " ");
+        }
+        message = text.toString();
+
+        request = new ContactRequest();
+        request.setName("Customer");
+        request.setEmail("customer@example.com");
+        request.setPhone("98480 12345");
+        request.setMessage(message);
+    }
+
+    @Benchmark
+    public boolean isValidEmail() {
+        return contactService.isValidEmail(EMAILS[cursor++ % EMAILS.length]);
+    }
+
+    @Benchmark
+    public boolean isValidPhone() {
+        return contactService.isValidPhone(PHONES[cursor++ % PHONES.length]);
+    }
+
+    @Benchmark
+    public int countWords() {
+        return contactService.countWords(message);
+    }
+
+    @Benchmark
+    public ContactRequest submitContactForm() {
+        contactService.submitContactForm(request);
+        return request;
+    }
+}
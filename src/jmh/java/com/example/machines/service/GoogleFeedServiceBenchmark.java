@@ -0,0 +1,60 @@
+package com.example.machines.service;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.entity.Product;
+import com.example.machines.repository.ProductRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoogleFeedServiceBenchmark {
+
+    @Param({"10000"})
+    private int productCount;
+
+    private GoogleFeedService googleFeedService;
+    private String[] escapeInputs;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Product> products = SyntheticData.products(productCount);
+        ProductRepository productRepository = Mockito.mock(ProductRepository.class, Mockito.withSettings().stubOnly());
+        Mockito.when(productRepository.findByIsActiveTrue()).thenReturn(products);
+
+        googleFeedService = new GoogleFeedService();
+        ReflectionTestUtils.setField(googleFeedService, "productRepository", productRepository);
+
+        escapeInputs = products.stream()
+                .limit(1024)
+                .map(Product::getDescription)
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String escapeXml() {
+        return googleFeedService.escapeXml(escapeInputs[cursor++ & 1023]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String generateXmlFeed() {
+        return googleFeedService.generateGoogleProductFeed();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Map<String, Object>> generateJsonFeed() {
+        return googleFeedService.generateGoogleProductFeedJson();
+    }
+}
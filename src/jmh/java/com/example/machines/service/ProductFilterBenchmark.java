@@ -0,0 +1,83 @@
+package com.example.machines.service;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Faceted filters on a synthetic catalog: facet counts alone (no filter), one brand, and a brand
+ * plus spec value plus motor wattage range, each computing the matches and every facet's
+ * counts; and a listing filter over the flags and a price bucket, matches only. Run with
+ * "-prof gc" for allocation per filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductFilterBenchmark {
+
+    @Param({"2000", "20000"})
+    private int productCount;
+
+    private ProductFilterIndex filterIndex;
+
+    private ProductFilterIndex.Criteria unfiltered;
+    private ProductFilterIndex.Criteria brand;
+    private ProductFilterIndex.Criteria brandTypeAndMotor;
+    private ProductFilterIndex.Criteria listingFlags;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Object[]> rows = SyntheticData.products(productCount).stream()
+                .map(ProductFilterBenchmark::toRow)
+                .collect(Collectors.toList());
+        filterIndex = new ProductFilterIndex();
+        filterIndex.replaceAll(rows);
+        unfiltered = new ProductFilterIndex.Criteria();
+        brand = new ProductFilterIndex.Criteria().value(ProductFilterIndex.BRAND, "Usha");
+        brandTypeAndMotor = new ProductFilterIndex.Criteria()
+                .value(ProductFilterIndex.BRAND, "Usha")
+                .value(ProductFilterIndex.SPEC_PREFIX + "type", "Computerised")
+                .range("motor", 100.0, null);
+        listingFlags = new ProductFilterIndex.Criteria()
+                .value(ProductFilterIndex.ACTIVE, "true")
+                .value(ProductFilterIndex.IN_STOCK, "true")
+                .value(ProductFilterIndex.ON_SALE, "true")
+                .value(ProductFilterIndex.PRICE, "10000-25000");
+        if (filterIndex.filter(brandTypeAndMotor).matches().isEmpty() || filterIndex.matches(listingFlags).isEmpty()) {
+            throw new IllegalStateException("Combined filter matched nothing");
+        }
+    }
+
+    private static Object[] toRow(Product product) {
+        return new Object[] {product.getId(), product.getBrandName(), product.getPrice(), product.getSpecificationsJson(),
+                product.getIsActive(), product.getInStock(), product.getIsOnSale(), product.getIsNew()};
+    }
+
+    @Benchmark
+    public ProductFilterIndex.FilterResult facetsOnly() {
+        return filterIndex.filter(unfiltered);
+    }
+
+    @Benchmark
+    public ProductFilterIndex.FilterResult brandOnly() {
+        return filterIndex.filter(brand);
+    }
+
+    @Benchmark
+    public ProductFilterIndex.FilterResult brandTypeAndMotorRange() {
+        return filterIndex.filter(brandTypeAndMotor);
+    }
+
+    @Benchmark
+    public RoaringBitmap listingFlagsMatches() {
+        return filterIndex.matches(listingFlags);
+    }
+}
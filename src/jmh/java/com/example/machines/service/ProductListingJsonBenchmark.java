@@ -0,0 +1,152 @@
+package com.example.machines.service;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.cache.JsonFragmentCache;
+import com.example.machines.cache.JsonFragments;
+import com.example.machines.cache.JsonFragmentsHttpMessageConverter;
+import com.example.machines.dto.ProductResponse;
+import com.example.machines.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Public product listing serialization: the default Jackson message converter over freshly
+ * built DTOs versus assembling cached per-product JSON fragments. Run with "-prof gc" to
+ * compare allocation per listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductListingJsonBenchmark {
+
+    private static final Type LIST_TYPE = new ParameterizedTypeReference<List<ProductResponse>>() { }.getType();
+
+    @Param({"100", "2000"})
+    private int productCount;
+
+    private ProductService productService;
+    private MappingJackson2HttpMessageConverter jacksonConverter;
+    private JsonFragmentsHttpMessageConverter fragmentConverter;
+    private List<Product> products;
+    private final DiscardingOutputMessage output = new DiscardingOutputMessage();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Same settings Spring Boot applies to the application ObjectMapper
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        JsonFragmentCache fragmentCache = new JsonFragmentCache();
+        ReflectionTestUtils.setField(fragmentCache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(fragmentCache, "maxEntries", 100_000);
+
+        productService = new ProductService();
+        ReflectionTestUtils.setField(productService, "jsonFragmentCache", fragmentCache);
+        jacksonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+        fragmentConverter = new JsonFragmentsHttpMessageConverter();
+        products = SyntheticData.products(productCount);
+
+        // Both paths must produce identical bytes, otherwise the comparison is meaningless
+        byte[] expected = capture(true);
+        byte[] actual = capture(false);
+        if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException("Fragment output differs from Jackson converter output");
+        }
+    }
+
+    @Benchmark
+    public long jacksonConverter() throws IOException {
+        List<ProductResponse> responses = products.stream()
+                .map(productService::convertToResponse)
+                .collect(Collectors.toList());
+        output.reset();
+        jacksonConverter.write(responses, LIST_TYPE, MediaType.APPLICATION_JSON, output);
+        return output.bytesWritten;
+    }
+
+    @Benchmark
+    public long cachedFragments() throws IOException {
+        JsonFragments fragments = productService.toJsonFragments(products);
+        output.reset();
+        fragmentConverter.write(fragments, MediaType.APPLICATION_JSON, output);
+        return output.bytesWritten;
+    }
+
+    private byte[] capture(boolean jackson) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HttpOutputMessage message = new HttpOutputMessage() {
+            private final HttpHeaders headers = new HttpHeaders();
+
+            @Override
+            public OutputStream getBody() {
+                return bytes;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+        if (jackson) {
+            List<ProductResponse> responses = products.stream()
+                    .map(productService::convertToResponse)
+                    .collect(Collectors.toList());
+            jacksonConverter.write(responses, LIST_TYPE, MediaType.APPLICATION_JSON, message);
+        } else {
+            fragmentConverter.write(productService.toJsonFragments(products), MediaType.APPLICATION_JSON, message);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Response stand-in that counts bytes instead of buffering them, so neither path pays for
+     * the destination
+     */
+    private static final class DiscardingOutputMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private long bytesWritten;
+        private final OutputStream body = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytesWritten++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytesWritten += len;
+            }
+        };
+
+        void reset() {
+            headers.clear();
+            bytesWritten = 0;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
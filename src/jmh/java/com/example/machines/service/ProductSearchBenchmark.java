@@ -0,0 +1,69 @@
+package com.example.machines.service;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.dto.ProductSearchResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the product search index on a synthetic catalog: an exact word, a typo,
+ * a two-word prefix query with a facet filter, and the empty browse query that only counts facets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    @Param({"2000", "20000"})
+    private int productCount;
+
+    private ProductSearchIndex searchIndex;
+    private Path indexDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        indexDir = Files.createTempDirectory("product-search-benchmark");
+        searchIndex = new ProductSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "indexDir", indexDir.toString());
+        searchIndex.open();
+        searchIndex.replaceAll(SyntheticData.products(productCount));
+        if (searchIndex.search("singr", null, null, 10, 0).getTotal() == 0) {
+            throw new IllegalStateException("Typo query found nothing");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        searchIndex.close();
+        FileSystemUtils.deleteRecursively(indexDir);
+    }
+
+    @Benchmark
+    public ProductSearchResponse exactWord() {
+        return searchIndex.search("janome", null, null, 20, 0);
+    }
+
+    @Benchmark
+    public ProductSearchResponse typo() {
+        return searchIndex.search("embroidry", null, null, 20, 0);
+    }
+
+    @Benchmark
+    public ProductSearchResponse prefixWithFilter() {
+        return searchIndex.search("brot comp", "Brother", "10000-25000", 20, 0);
+    }
+
+    @Benchmark
+    public ProductSearchResponse browseFacets() {
+        return searchIndex.search(null, null, null, 20, 0);
+    }
+}
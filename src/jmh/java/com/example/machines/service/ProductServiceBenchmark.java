@@ -0,0 +1,46 @@
+package com.example.machines.service;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.dto.ProductResponse;
+import com.example.machines.entity.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"10000"})
+    private int productCount;
+
+    private ProductService productService;
+    private List<Product> products;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productService = new ProductService();
+        products = SyntheticData.products(productCount);
+    }
+
+    @Benchmark
+    public ProductResponse convertToResponse() {
+        Product product = products.get(cursor++ % productCount);
+        return productService.convertToResponse(product);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void convertCatalog(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(productService.convertToResponse(product));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.machines.service;
+
+import com.example.machines.benchmark.SyntheticData;
+import com.example.machines.dto.ProductSuggestion;
+import com.example.machines.entity.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Typeahead lookups on a synthetic catalog: a one-letter prefix (precomputed), a brand-wide
+ * three-letter prefix and a narrow mid-title word prefix. Run with "-prof gc" for allocation
+ * per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSuggestBenchmark {
+
+    @Param({"2000", "20000"})
+    private int productCount;
+
+    private ProductSuggestIndex suggestIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Object[]> rows = SyntheticData.products(productCount).stream()
+                .map(ProductSuggestBenchmark::toRow)
+                .collect(Collectors.toList());
+        suggestIndex = new ProductSuggestIndex();
+        suggestIndex.replaceAll(rows);
+        if (suggestIndex.suggest("zig", 8).isEmpty()) {
+            throw new IllegalStateException("Mid-title prefix found nothing");
+        }
+    }
+
+    private static Object[] toRow(Product product) {
+        return new Object[] {product.getId(), product.getTitle(), product.getBrandName(), product.getBrandSlug(),
+                product.getRating(), product.getReviewCount()};
+    }
+
+    @Benchmark
+    public List<ProductSuggestion> singleLetter() {
+        return suggestIndex.suggest("s", 8);
+    }
+
+    @Benchmark
+    public List<ProductSuggestion> brandPrefix() {
+        return suggestIndex.suggest("Sin", 8);
+    }
+
+    @Benchmark
+    public List<ProductSuggestion> titleWordPrefix() {
+        return suggestIndex.suggest("model 19", 8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.machines.util;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-secret-key-that-is-at-least-256-bits-long");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        token = jwtUtil.generateToken("customer1@example.com", "USER", 1L);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("customer" + (++userId & 1023) + "@example.com", "USER", userId);
+    }
+
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtUtil.getClaims(token);
+    }
+
+    /**
+     * Mirrors the controllers' getUserIdFromToken: extract subject, validate, then read claims again.
+     */
+    @Benchmark
+    public Object controllerTokenCheck() {
+        String email = jwtUtil.extractUsername(token);
+        if (email != null && jwtUtil.validateToken(token, email)) {
+            return jwtUtil.getClaims(token).get("userId");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,524 @@
+package com.example.machines.loadtest;
+
+import com.example.machines.MachinesApplication;
+import com.example.machines.dto.OrderStatusUpdateMessage;
+import com.example.machines.dto.PriceUpdateMessage;
+import com.example.machines.service.WebSocketService;
+import com.example.machines.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how fast one broadcast on /topic/price-updates reaches thousands of STOMP
+ * subscribers spread over several application nodes. In relay mode (the default) the nodes
+ * share an embedded Artemis broker through app.websocket.broker=relay; with relay=0 each node
+ * uses its in-process simple broker, and the report shows that only subscribers on the
+ * publishing node receive anything.
+ *
+ * With slow=N, N more subscribers on node 0 take slowms milliseconds over every frame. They
+ * are left out of the latency figures, which show whether the others still get the broadcast
+ * on time, and the report lists the sessions each node closed, 4500 being a slow consumer.
+ * Frames must outgrow the socket buffers before a reader backs up, so pad them with
+ * payload=bytes.
+ *
+ * With users=1 (the default) every other subscriber connects with a JWT for its own userId
+ * and subscribes to /user/queue/order-updates. After the broadcasts node 0 sends each of
+ * them one order update, and as many to userIds with no session; the report shows how many
+ * reached their user, any that reached someone else, and what the sends to offline users cost.
+ *
+ * With sse=N, N more clients on node 0 take the same broadcasts as server-sent events from
+ * /api/events, reported in their own row. Afterwards one more stream opens with the
+ * Last-Event-ID of the first broadcast's predecessor, and the report shows how many of the
+ * broadcasts it got replayed. SSE is refused in relay mode, so sse needs relay=0.
+ *
+ * Arguments (all optional, with or without a leading "--"): subscribers=1000 (one WebSocket
+ * connection each, spread round-robin over the nodes) messages=100 (broadcasts from node 0)
+ * nodes=2 relay=1 slow=0 slowms=100 payload=0 users=1 sse=0
+ */
+public class BrokerFanOutBenchmark {
+
+    private static final String TOPIC = "/topic/price-updates";
+    private static final String PROBE = "PROBE";
+    private static final String USER_QUEUE = "/user/queue/order-updates";
+
+    private final Map<String, Integer> options;
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final List<StompSession> sessions = new ArrayList<>();
+    // Subscribers that have seen a probe from node 0, and the benchmark deliveries per receiving node
+    private final Set<Integer> reachable = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, EndpointStats> deliveriesByNode = new ConcurrentHashMap<>();
+    private final LongAdder delivered = new LongAdder();
+    private final AtomicLong lastDeliveryNanos = new AtomicLong();
+    private final LongAdder slowDelivered = new LongAdder();
+    private final EndpointStats userDeliveries = new EndpointStats();
+    private final LongAdder userDelivered = new LongAdder();
+    private final LongAdder misrouted = new LongAdder();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<Integer> sseReachable = ConcurrentHashMap.newKeySet();
+    private final EndpointStats sseDeliveries = new EndpointStats();
+    private final LongAdder sseDelivered = new LongAdder();
+    private final AtomicLong firstBroadcastEventId = new AtomicLong(Long.MAX_VALUE);
+    private volatile boolean stopping;
+
+    BrokerFanOutBenchmark(Map<String, Integer> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> options = new HashMap<>(Map.of(
+                "subscribers", 1000, "messages", 100, "nodes", 2, "relay", 1, "slow", 0, "slowms", 100, "payload", 0,
+                "users", 1, "sse", 0));
+        for (String arg : args) {
+            if (arg.contains("=")) {
+                String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+                options.put(parts[0], Integer.parseInt(parts[1]));
+            }
+        }
+        new BrokerFanOutBenchmark(options).run();
+        System.exit(0);
+    }
+
+    void run() throws Exception {
+        boolean relay = options.get("relay") == 1;
+        if (relay && options.get("sse") > 0) {
+            throw new IllegalArgumentException("SSE is single-node only and refused with the relay; run sse=N with relay=0");
+        }
+        EmbeddedStompBroker broker = null;
+        try {
+            if (relay) {
+                broker = new EmbeddedStompBroker();
+                broker.start();
+                System.out.println("Embedded STOMP broker on port " + broker.getPort());
+            }
+            Path indexRoot = Files.createTempDirectory("fanout-search-index");
+            for (int i = 0; i < options.get("nodes"); i++) {
+                // Separate databases and search indexes: each node is its own application instance
+                nodes.add(new SpringApplicationBuilder(MachinesApplication.class)
+                        .profiles("loadtest")
+                        // Arguments rather than default properties, which application.properties would override
+                        .run("--app.websocket.broker=" + (relay ? "relay" : "simple"),
+                                "--app.websocket.relay.port=" + (relay ? broker.getPort() : 61613),
+                                "--spring.datasource.url=jdbc:h2:mem:fanout-node-" + i + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                                "--app.search.index-dir=" + indexRoot.resolve("node-" + i)));
+            }
+
+            connectSubscribers();
+            connectSseSubscribers();
+            waitForReachableSubscribers();
+            broadcast();
+            printReport(relay);
+            if (options.get("sse") > 0) {
+                replayMissedEvents();
+            }
+            if (options.get("users") == 1) {
+                sendUserMessages();
+            }
+        } finally {
+            stopping = true;
+            for (StompSession session : sessions) {
+                if (session.isConnected()) {
+                    session.disconnect();
+                }
+            }
+            // Let the relay forward the DISCONNECTs before the nodes close their broker connections
+            Thread.sleep(1000);
+            for (ConfigurableApplicationContext node : nodes) {
+                node.close();
+            }
+            if (broker != null) {
+                broker.stop();
+            }
+        }
+    }
+
+    private void connectSubscribers() throws Exception {
+        // The container's default 8 KB text buffer would close connections on padded frames; it is
+        // allocated per connection, so it only grows with the padding
+        int frameLimit = Math.max(8192, options.get("payload") + 1024);
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxTextMessageBufferSize(frameLimit);
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient(container));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setInboundMessageSizeLimit(frameLimit);
+        int subscribers = options.get("subscribers");
+        int total = subscribers + options.get("slow");
+        JwtUtil jwtUtil = nodes.get(0).getBean(JwtUtil.class);
+        long start = System.nanoTime();
+        // Waves keep the handshake backlog bounded
+        for (int wave = 0; wave < total; wave += 100) {
+            List<CompletableFuture<StompSession>> connecting = new ArrayList<>();
+            for (int subscriber = wave; subscriber < Math.min(wave + 100, total); subscriber++) {
+                boolean slow = subscriber >= subscribers;
+                int node = slow ? 0 : subscriber % nodes.size();
+                int port = ((ServletWebServerApplicationContext) nodes.get(node)).getWebServer().getPort();
+                // SockJS serves a raw WebSocket under /websocket
+                StompHeaders connectHeaders = new StompHeaders();
+                if (!slow && options.get("users") == 1) {
+                    connectHeaders.add("Authorization", "Bearer "
+                            + jwtUtil.generateToken("subscriber" + subscriber + "@loadtest.local", "USER", userId(subscriber)));
+                }
+                connecting.add(stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", new WebSocketHttpHeaders(), connectHeaders,
+                        new Subscriber(subscriber, node, slow)));
+            }
+            for (CompletableFuture<StompSession> future : connecting) {
+                sessions.add(future.get(30, TimeUnit.SECONDS));
+            }
+        }
+        System.out.printf("Connected %d subscribers to %d nodes in %d ms%n", total, nodes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Subscriptions reach an external broker asynchronously, so node 0 probes until every
+     * subscriber has seen a probe or 15 seconds have passed
+     */
+    private void waitForReachableSubscribers() throws InterruptedException {
+        WebSocketService publisher = nodes.get(0).getBean(WebSocketService.class);
+        int subscribers = options.get("subscribers");
+        int sse = options.get("sse");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while ((reachable.size() < subscribers || sseReachable.size() < sse) && System.nanoTime() < deadline) {
+            publisher.broadcastPriceUpdate(new PriceUpdateMessage(0L, BigDecimal.ONE, BigDecimal.ONE, "0", PROBE));
+            Thread.sleep(250);
+        }
+        System.out.printf("%d of %d subscribers reachable from node 0%n", reachable.size(), subscribers);
+        if (sse > 0) {
+            System.out.printf("%d of %d SSE clients reachable%n", sseReachable.size(), sse);
+        }
+    }
+
+    private void broadcast() throws InterruptedException {
+        WebSocketService publisher = nodes.get(0).getBean(WebSocketService.class);
+        int messages = options.get("messages");
+        long expected = (long) messages * reachable.size();
+        long sseExpected = (long) messages * sseReachable.size();
+        String padding = " ".repeat(options.get("payload"));
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            publisher.broadcastPriceUpdate(new PriceUpdateMessage((long) i, BigDecimal.valueOf(1000 + i), BigDecimal.valueOf(1200),
+                    System.nanoTime() + padding, "PRICE_CHANGED"));
+        }
+        long published = System.nanoTime();
+        long deadline = published + TimeUnit.SECONDS.toNanos(60);
+        while ((delivered.sum() < expected || sseDelivered.sum() < sseExpected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        double seconds = Math.max(lastDeliveryNanos.get() - start, 1) / 1e9;
+        System.out.printf("Published %d broadcasts in %d ms; %d of %d deliveries in %.2f s, %.0f deliveries/s%n",
+                messages, TimeUnit.NANOSECONDS.toMillis(published - start), delivered.sum(), expected,
+                seconds, delivered.sum() / seconds);
+    }
+
+    private void connectSseSubscribers() {
+        int sse = options.get("sse");
+        for (int client = 0; client < sse; client++) {
+            openSseStream(new SseSubscriber(client, false), null);
+        }
+    }
+
+    private void openSseStream(SseSubscriber subscriber, Long lastEventId) {
+        int port = ((ServletWebServerApplicationContext) nodes.get(0)).getWebServer().getPort();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/events"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        // Lines are pushed to the subscriber as they arrive, without a thread per stream
+        httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.fromLineSubscriber(subscriber));
+    }
+
+    /**
+     * A new stream resuming from just before the first broadcast should be sent all of them again
+     */
+    private void replayMissedEvents() throws InterruptedException {
+        int messages = options.get("messages");
+        SseSubscriber resumed = new SseSubscriber(-1, true);
+        openSseStream(resumed, firstBroadcastEventId.get() - 1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (resumed.replayed.sum() < messages && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        System.out.printf("SSE stream resumed with Last-Event-ID %d was replayed %d of %d broadcasts%n",
+                firstBroadcastEventId.get() - 1, resumed.replayed.sum(), messages);
+    }
+
+    private static long userId(int subscriber) {
+        return subscriber + 1L;
+    }
+
+    /**
+     * One order update per subscriber, addressed by userId from node 0, then as many to userIds
+     * that have no session
+     */
+    private void sendUserMessages() throws InterruptedException {
+        WebSocketService publisher = nodes.get(0).getBean(WebSocketService.class);
+        SimpUserRegistry userRegistry = nodes.get(0).getBean(SimpUserRegistry.class);
+        int subscribers = options.get("subscribers");
+        // In relay mode node 0 learns of the other nodes' users from their periodic registry broadcasts
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (userRegistry.getUserCount() < subscribers && System.nanoTime() < deadline) {
+            Thread.sleep(250);
+        }
+        int known = userRegistry.getUserCount();
+
+        long start = System.nanoTime();
+        for (int subscriber = 0; subscriber < subscribers; subscriber++) {
+            long userId = userId(subscriber);
+            publisher.sendOrderStatusUpdate(userId, new OrderStatusUpdateMessage((long) subscriber, "ORD-" + subscriber,
+                    "SHIPPED", String.valueOf(System.nanoTime()), userId));
+        }
+        long connectedNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int offline = 0; offline < subscribers; offline++) {
+            long userId = userId(subscribers + options.get("slow") + offline);
+            publisher.sendOrderStatusUpdate(userId, new OrderStatusUpdateMessage((long) offline, "ORD-" + offline,
+                    "SHIPPED", String.valueOf(System.nanoTime()), userId));
+        }
+        long offlineNanos = System.nanoTime() - start;
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (userDelivered.sum() + misrouted.sum() < subscribers && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        // Anything still to arrive for the offline userIds would be misrouted
+        Thread.sleep(500);
+
+        System.out.println();
+        System.out.printf("Order updates on %s from node 0 (%d users known to node 0)%n", USER_QUEUE, known);
+        System.out.printf("%-20s %12s %12s %9s %9s %9s %9s%n", "Recipients", "Sent", "Delivered", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        System.out.printf("%-20s %12d %12d %9.2f %9.2f %9.2f %9.2f%n", "connected users", subscribers, userDelivered.sum(),
+                userDeliveries.percentileMillis(50), userDeliveries.percentileMillis(95),
+                userDeliveries.percentileMillis(99), userDeliveries.percentileMillis(100));
+        System.out.printf("%d delivered to the wrong user; sends took %.1f us each to connected users, %.1f us to offline ones%n",
+                misrouted.sum(), connectedNanos / 1e3 / subscribers, offlineNanos / 1e3 / subscribers);
+    }
+
+    private void printReport(boolean relay) {
+        System.out.println();
+        System.out.printf("Fan-out of %s through the %s broker, published on node 0%n", TOPIC, relay ? "relay" : "simple");
+        System.out.printf("%-20s %12s %12s %9s %9s %9s %9s%n", "Receiving node", "Subscribers", "Deliveries", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (int node = 0; node < nodes.size(); node++) {
+            int subscribers = (options.get("subscribers") + nodes.size() - 1 - node) / nodes.size();
+            EndpointStats stats = deliveriesByNode.get(node);
+            System.out.printf("%-20s %12d %12d %9.2f %9.2f %9.2f %9.2f%n", "node " + node, subscribers,
+                    stats != null ? stats.count() : 0,
+                    stats != null ? stats.percentileMillis(50) : Double.NaN,
+                    stats != null ? stats.percentileMillis(95) : Double.NaN,
+                    stats != null ? stats.percentileMillis(99) : Double.NaN,
+                    stats != null ? stats.percentileMillis(100) : Double.NaN);
+        }
+        // Close status 4500 is a slow-consumer disconnect (send time or buffer limit)
+        for (int node = 0; node < nodes.size(); node++) {
+            for (Counter closed : nodes.get(node).getBean(MeterRegistry.class).find("websocket.sessions").tag("event", "closed").counters()) {
+                System.out.printf("node %d sessions closed with status %s: %.0f%n", node, closed.getId().getTag("status"), closed.count());
+            }
+        }
+        if (options.get("sse") > 0) {
+            System.out.printf("%-20s %12d %12d %9.2f %9.2f %9.2f %9.2f%n", "sse (node 0)", options.get("sse"),
+                    sseDeliveries.count(), sseDeliveries.percentileMillis(50), sseDeliveries.percentileMillis(95),
+                    sseDeliveries.percentileMillis(99), sseDeliveries.percentileMillis(100));
+        }
+        if (options.get("slow") > 0) {
+            System.out.printf("%-20s %12d %12d%n", "slow (node 0)", options.get("slow"), slowDelivered.sum());
+        }
+    }
+
+    /**
+     * Parses an event stream line by line: "id:", "event:" and "data:" fields, dispatched at the
+     * blank line ending each event
+     */
+    private class SseSubscriber implements Flow.Subscriber<String> {
+
+        private final int index;
+        private final boolean replay;
+        private final LongAdder replayed = new LongAdder();
+        private String id;
+        private String event;
+        private final StringBuilder data = new StringBuilder();
+
+        SseSubscriber(int index, boolean replay) {
+            this.index = index;
+            this.replay = replay;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.isEmpty()) {
+                if ("price-updates".equals(event)) {
+                    dispatch();
+                }
+                id = null;
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("id:")) {
+                id = line.substring(3).strip();
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).strip();
+            } else if (line.startsWith("data:")) {
+                data.append(line.substring(5).strip());
+            }
+        }
+
+        private void dispatch() {
+            PriceUpdateMessage message;
+            try {
+                message = objectMapper.readValue(data.toString(), PriceUpdateMessage.class);
+            } catch (IOException e) {
+                System.err.println("SSE client " + index + " could not parse: " + data);
+                return;
+            }
+            if (PROBE.equals(message.getType())) {
+                sseReachable.add(index);
+                return;
+            }
+            if (replay) {
+                replayed.increment();
+                return;
+            }
+            if (message.getProductId() == 0) {
+                firstBroadcastEventId.accumulateAndGet(Long.parseLong(id), Math::min);
+            }
+            sseDeliveries.recordLatency(System.nanoTime() - Long.parseLong(message.getMessage().strip()), true);
+            sseDelivered.increment();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Closing the nodes ends every stream
+            if (stopping) {
+                return;
+            }
+            System.err.println("SSE client " + index + " error: " + throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private class Subscriber extends StompSessionHandlerAdapter {
+
+        private final int index;
+        private final int node;
+        private final boolean slow;
+
+        Subscriber(int index, int node, boolean slow) {
+            this.index = index;
+            this.node = node;
+            this.slow = slow;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe(TOPIC, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return PriceUpdateMessage.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    PriceUpdateMessage message = (PriceUpdateMessage) payload;
+                    if (slow) {
+                        // Blocks this connection's reader, so frames back up on the server
+                        try {
+                            Thread.sleep(options.get("slowms"));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        if (!PROBE.equals(message.getType())) {
+                            slowDelivered.increment();
+                        }
+                        return;
+                    }
+                    if (PROBE.equals(message.getType())) {
+                        reachable.add(index);
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    deliveriesByNode.computeIfAbsent(node, key -> new EndpointStats())
+                            .recordLatency(now - Long.parseLong(message.getMessage().strip()), true);
+                    delivered.increment();
+                    lastDeliveryNanos.accumulateAndGet(now, Math::max);
+                }
+            });
+            if (slow || options.get("users") != 1) {
+                return;
+            }
+            session.subscribe(USER_QUEUE, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return OrderStatusUpdateMessage.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    OrderStatusUpdateMessage message = (OrderStatusUpdateMessage) payload;
+                    if (message.getUserId() == null || message.getUserId() != userId(index)) {
+                        misrouted.increment();
+                        return;
+                    }
+                    userDeliveries.recordLatency(System.nanoTime() - Long.parseLong(message.getMessage()), true);
+                    userDelivered.increment();
+                }
+            });
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command,
+                                    StompHeaders headers, byte[] payload, Throwable exception) {
+            System.err.println("Subscriber " + index + " error: " + exception.getMessage());
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            // Expected once the server drops a slow subscriber
+            if (slow) {
+                return;
+            }
+            System.err.println("Subscriber " + index + " transport error: " + exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.machines.loadtest;
+
+import com.example.machines.entity.Admin;
+import com.example.machines.entity.Blog;
+import com.example.machines.entity.Product;
+import com.example.machines.entity.User;
+import com.example.machines.repository.AdminRepository;
+import com.example.machines.repository.BlogRepository;
+import com.example.machines.repository.ProductRepository;
+import com.example.machines.repository.UserRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a deterministic synthetic catalog, customer base and blog list into the embedded database.
+ */
+public class CatalogSeeder {
+
+    private static final String[] BRANDS = {
+        "Usha", "Singer", "Brother", "Jack", "Juki", "Merritt", "Janome", "Bernette"
+    };
+
+    private static final String[] TYPES = {
+        "Automatic Zig-Zag", "Computerised", "Straight Stitch", "Overlock", "Embroidery", "Industrial Lockstitch"
+    };
+
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final AdminRepository adminRepository;
+    private final BlogRepository blogRepository;
+    private final PasswordEncoder passwordEncoder;
+
+    private final List<Product> products = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private Admin admin;
+
+    public CatalogSeeder(ApplicationContext context) {
+        this.productRepository = context.getBean(ProductRepository.class);
+        this.userRepository = context.getBean(UserRepository.class);
+        this.adminRepository = context.getBean(AdminRepository.class);
+        this.blogRepository = context.getBean(BlogRepository.class);
+        this.passwordEncoder = context.getBean(PasswordEncoder.class);
+    }
+
+    public void seed(int productCount, int userCount, int blogCount, int scheduledPercent) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Product> batch = new ArrayList<>();
+        for (int i = 1; i <= productCount; i++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            String type = TYPES[random.nextInt(TYPES.length)];
+            BigDecimal price = BigDecimal.valueOf(4_000 + random.nextInt(60_000)).setScale(2);
+
+            Product product = new Product();
+            product.setTitle(brand + " " + type + " Sewing Machine Model " + i);
+            product.setDescription("The " + brand + " " + type + " machine offers " + (10 + random.nextInt(200))
+                    + " built-in stitches, an automatic needle threader and a heavy-duty metal frame.");
+            product.setBrandName(brand);
+            product.setBrandSlug(brand.toLowerCase() + "-" + type.toLowerCase().replace(' ', '-') + "-" + i);
+            product.setPrice(price);
+            product.setOriginalPrice(price.add(BigDecimal.valueOf(1_500)));
+            product.setImageUrl("https://res.cloudinary.com/loadtest/image/upload/sewing%20machines/p" + i + ".jpg");
+            product.setMainImageUrl(product.getImageUrl());
+            product.setGalleryImages(new ArrayList<>(List.of(
+                    "https://res.cloudinary.com/loadtest/image/upload/sewing%20machines/p" + i + "_1.jpg",
+                    "https://res.cloudinary.com/loadtest/image/upload/sewing%20machines/p" + i + "_2.jpg")));
+            product.setIsActive(random.nextInt(20) > 0);
+            product.setInStock(random.nextInt(10) > 0);
+            product.setStockQuantity(random.nextInt(100));
+            product.setIsOnSale(random.nextInt(4) == 0);
+            product.setIsNew(random.nextInt(5) == 0);
+            product.setRating(BigDecimal.valueOf(300 + random.nextInt(200), 2));
+            product.setReviewCount(random.nextInt(500));
+            product.setHighlights(new ArrayList<>(List.of("Automatic needle threader", "LED sewing light", "Free arm")));
+            product.setSpecificationsJson("{\"type\":\"" + type + "\",\"motor\":\"" + (70 + random.nextInt(80)) + "W\"}");
+            if (random.nextInt(100) < scheduledPercent) {
+                product.setScheduledPrice(price.subtract(BigDecimal.valueOf(500)));
+                product.setPriceStartDate(now.minusDays(1));
+                product.setPriceEndDate(now.plusDays(7));
+            }
+            batch.add(product);
+            if (batch.size() == 500) {
+                products.addAll(productRepository.saveAll(batch));
+                batch.clear();
+            }
+        }
+        products.addAll(productRepository.saveAll(batch));
+
+        String password = passwordEncoder.encode("loadtest-password");
+        List<User> newUsers = new ArrayList<>();
+        for (int i = 1; i <= userCount; i++) {
+            User user = new User();
+            user.setEmail("loadtest" + i + "@example.com");
+            user.setPassword(password);
+            user.setName("Load Test User " + i);
+            user.setPhone("98480" + String.format("%05d", i));
+            newUsers.add(user);
+        }
+        users.addAll(userRepository.saveAll(newUsers));
+
+        Admin newAdmin = new Admin();
+        newAdmin.setEmail("loadtest-admin@example.com");
+        newAdmin.setPassword(password);
+        newAdmin.setName("Load Test Admin");
+        admin = adminRepository.save(newAdmin);
+
+        List<Blog> blogs = new ArrayList<>();
+        for (int i = 1; i <= blogCount; i++) {
+            Blog blog = new Blog();
+            blog.setTitle("Sewing tips part " + i);
+            blog.setSlug("sewing-tips-" + i);
+            blog.setExcerpt("Practical advice for getting the most out of your machine, part " + i + ".");
+            blog.setContent("<p>" + "Keep your machine oiled and your needles fresh. ".repeat(200) + "</p>");
+            blog.setCategory(i % 2 == 0 ? "Maintenance" : "Guides");
+            blogs.add(blog);
+        }
+        blogRepository.saveAll(blogs);
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public Admin getAdmin() {
+        return admin;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.machines.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Cloudinary upload API. The real SDK is pointed at it through
+ * upload_prefix, so uploads exercise the same streaming multipart HTTP path as production.
+ * Request bodies are drained and counted, never buffered.
+ */
+public class CloudinaryStubServer {
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong uploads;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public CloudinaryStubServer(AtomicLong uploads) {
+        this.uploads = uploads;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1_1/", this::handle);
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String getUploadPrefix() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // Path: /v1_1/{cloud_name}/{resource_type}/{action}
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        String cloudName = path.length > 2 ? path[2] : "stub";
+        String action = path[path.length - 1];
+
+        long received = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream body = exchange.getRequestBody()) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                received += read;
+            }
+        }
+        bytesReceived.addAndGet(received);
+
+        String json;
+        if ("upload".equals(action)) {
+            long id = uploads.incrementAndGet();
+            String publicId = "sewing machines/stub-" + id;
+            json = "{\"public_id\":\"" + publicId + "\",\"bytes\":" + received
+                    + ",\"format\":\"jpg\",\"resource_type\":\"image\""
+                    + ",\"secure_url\":\"https://res.cloudinary.com/" + cloudName
+                    + "/image/upload/v1/sewing%20machines/stub-" + id + ".jpg\"}";
+        } else {
+            json = "{\"result\":\"ok\"}";
+        }
+
+        byte[] response = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
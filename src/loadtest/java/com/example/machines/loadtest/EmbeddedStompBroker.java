@@ -0,0 +1,55 @@
+package com.example.machines.loadtest;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * In-memory ActiveMQ Artemis with a STOMP acceptor, standing in for the external broker of
+ * app.websocket.broker=relay. /topic destinations map to multicast addresses and /queue to
+ * anycast ones, which is how the Spring STOMP relay expects RabbitMQ or Artemis to behave.
+ */
+public class EmbeddedStompBroker {
+
+    private final EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+    private int port;
+    private Path dataDir;
+
+    public void start() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        dataDir = Files.createTempDirectory("stomp-broker");
+        Configuration configuration = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .setJournalDirectory(dataDir.resolve("journal").toString())
+                .setBindingsDirectory(dataDir.resolve("bindings").toString())
+                .setLargeMessagesDirectory(dataDir.resolve("large-messages").toString())
+                .setPagingDirectory(dataDir.resolve("paging").toString())
+                .addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + port
+                        + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+        server.setConfiguration(configuration);
+        server.start();
+    }
+
+    public void stop() throws Exception {
+        server.stop();
+        if (dataDir != null) {
+            try (var paths = Files.walk(dataDir)) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                // Temp files only
+            }
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.machines.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histogram plus server-side SQL statement totals.
+ * Endpoints are keyed as "METHOD /mapped/{pattern}" on both the client and the server side.
+ */
+public class EndpointStats {
+
+    private static final Map<String, EndpointStats> SERVER_SQL = new ConcurrentHashMap<>();
+
+    private final Histogram latencyNanos = new ConcurrentHistogram(TimeUnit.SECONDS.toNanos(60), 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder sqlStatements = new LongAdder();
+    private final LongAdder serverRequests = new LongAdder();
+
+    public static void recordServerRequest(String endpoint, int statements) {
+        EndpointStats stats = SERVER_SQL.computeIfAbsent(endpoint, key -> new EndpointStats());
+        stats.serverRequests.increment();
+        stats.sqlStatements.add(statements);
+    }
+
+    public static EndpointStats serverSide(String endpoint) {
+        return SERVER_SQL.get(endpoint);
+    }
+
+    public static void resetServerSide() {
+        SERVER_SQL.clear();
+    }
+
+    public void recordLatency(long nanos, boolean success) {
+        latencyNanos.recordValue(Math.min(nanos, latencyNanos.getHighestTrackableValue()));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public long count() {
+        return latencyNanos.getTotalCount();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public double percentileMillis(double percentile) {
+        return latencyNanos.getValueAtPercentile(percentile) / 1_000_000.0;
+    }
+
+    public double meanMillis() {
+        return latencyNanos.getMean() / 1_000_000.0;
+    }
+
+    public double sqlPerRequest() {
+        long requests = serverRequests.sum();
+        return requests == 0 ? 0 : (double) sqlStatements.sum() / requests;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.machines.loadtest;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replaces the external collaborators for load testing: mail is counted instead of sent,
+ * Cloudinary uploads go to a local stand-in endpoint, and every request records its SQL statement count.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+
+    static final AtomicLong MAILS_SENT = new AtomicLong();
+    static final AtomicLong UPLOADS = new AtomicLong();
+
+    @Bean
+    @Primary
+    public JavaMailSender stubMailSender() {
+        return new JavaMailSenderImpl() {
+            @Override
+            public void send(MimeMessage mimeMessage) {
+                MAILS_SENT.incrementAndGet();
+            }
+
+            @Override
+            public void send(MimeMessage... mimeMessages) {
+                MAILS_SENT.addAndGet(mimeMessages.length);
+            }
+
+            @Override
+            public void send(SimpleMailMessage... simpleMessages) {
+                MAILS_SENT.addAndGet(simpleMessages.length);
+            }
+        };
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public CloudinaryStubServer cloudinaryStubServer() {
+        return new CloudinaryStubServer(UPLOADS);
+    }
+
+    @Bean
+    @Primary
+    public Cloudinary stubCloudinary(CloudinaryStubServer stubServer) {
+        return new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", "loadtest",
+                "api_key", "loadtest",
+                "api_secret", "loadtest",
+                "upload_prefix", stubServer.getUploadPrefix()));
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> sqlStatementCountingFilter() {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                SqlStatementCounter.reset();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+                    EndpointStats.recordServerRequest(endpoint, SqlStatementCounter.current());
+                }
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
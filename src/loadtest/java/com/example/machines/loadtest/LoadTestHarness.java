@@ -0,0 +1,447 @@
+package com.example.machines.loadtest;
+
+import com.example.machines.MachinesApplication;
+import com.example.machines.entity.Product;
+import com.example.machines.entity.User;
+import com.example.machines.repository.ProductRepository;
+import com.example.machines.service.ProductFilterIndex;
+import com.example.machines.service.ProductSearchIndex;
+import com.example.machines.service.ProductSuggestIndex;
+import com.example.machines.service.SitemapService;
+import com.example.machines.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the application against an embedded database and drives a realistic traffic mix
+ * with concurrent virtual users, then prints throughput, latency percentiles and SQL
+ * statements per request for every endpoint.
+ *
+ * Arguments (all optional, with or without a leading "--"): users=50 duration=60 warmup=10
+ * products=2000 blogs=50 scheduled=0 (percentage of products with an active price schedule)
+ * virtual=0 (set to 1 to run with the "virtual-threads" profile on a Java 21 runtime, so the
+ * same mix can be compared against the default platform-thread mode) imports=0 (rows of a
+ * timed NDJSON bulk import, run twice to cover creates and updates, plus a CSV export before
+ * the traffic mix) bulkprices=0 (set to 1 to preview and apply a brand-wide price change and
+ * a price schedule through the bulk pricing API, checking the preview against the database)
+ */
+public class LoadTestHarness {
+
+    private static final String[] SEARCH_QUERIES = {
+        "usha", "singr", "brothr+computerised", "embroid", "overlock&price=25000-50000", "juki&brand=Juki", "janome+industrial"
+    };
+
+    private final Map<String, Integer> options;
+    private final Map<String, EndpointStats> clientStats = new ConcurrentHashMap<>();
+    // Last ETag seen per public path, replayed as If-None-Match like a returning browser would
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private ObjectMapper objectMapper;
+    private MeterRegistry meterRegistry;
+    private String baseUrl;
+    private List<Product> products;
+    private List<String> userTokens;
+    private String adminToken;
+    private volatile boolean recording;
+    private boolean virtualThreads;
+
+    LoadTestHarness(Map<String, Integer> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> options = new HashMap<>(Map.of(
+                "users", 50, "duration", 60, "warmup", 10, "products", 2000, "blogs", 50, "scheduled", 0, "virtual", 0, "imports", 0,
+                "bulkprices", 0));
+        for (String arg : args) {
+            if (arg.contains("=")) {
+                String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+                options.put(parts[0], Integer.parseInt(parts[1]));
+            }
+        }
+        new LoadTestHarness(options).run();
+    }
+
+    void run() throws Exception {
+        String[] profiles = options.get("virtual") == 1
+                ? new String[] {"loadtest", "virtual-threads"}
+                : new String[] {"loadtest"};
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MachinesApplication.class)
+                .profiles(profiles)
+                .run();
+        try {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+            objectMapper = context.getBean(ObjectMapper.class);
+            meterRegistry = context.getBean(MeterRegistry.class);
+            virtualThreads = context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                    && Runtime.version().feature() >= 21;
+
+            CatalogSeeder seeder = new CatalogSeeder(context);
+            seeder.seed(options.get("products"), options.get("users"), options.get("blogs"), options.get("scheduled"));
+            products = seeder.getProducts();
+            // The seeder writes through repositories, which publish no content events
+            context.getBean(SitemapService.class).load();
+            context.getBean(ProductSearchIndex.class).rebuild();
+            context.getBean(ProductSuggestIndex.class).load();
+            context.getBean(ProductFilterIndex.class).load();
+
+            JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+            userTokens = new ArrayList<>();
+            for (User user : seeder.getUsers()) {
+                userTokens.add(jwtUtil.generateToken(user.getEmail(), "USER", user.getId()));
+            }
+            adminToken = jwtUtil.generateToken(seeder.getAdmin().getEmail(), "ADMIN", seeder.getAdmin().getId());
+
+            if (options.get("imports") > 0) {
+                bulkImport(options.get("imports"));
+            }
+            if (options.get("bulkprices") == 1) {
+                bulkPricing(context.getBean(ProductRepository.class));
+            }
+
+            System.out.printf("Seeded %d products, %d users; driving %d virtual users for %ds (+%ds warmup)%n",
+                    products.size(), userTokens.size(), options.get("users"), options.get("duration"), options.get("warmup"));
+            drive();
+            printReport();
+        } finally {
+            context.close();
+        }
+    }
+
+    private void drive() throws InterruptedException {
+        int users = options.get("users");
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.get("warmup"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.get("duration"));
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+
+        ExecutorService virtualUsers = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            String token = userTokens.get(i % userTokens.size());
+            virtualUsers.submit(() -> {
+                while (System.nanoTime() < end) {
+                    runIteration(token);
+                }
+            });
+        }
+
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, measureStart - System.nanoTime()));
+        EndpointStats.resetServerSide();
+        recording = true;
+
+        virtualUsers.shutdown();
+        virtualUsers.awaitTermination(durationNanos + TimeUnit.MINUTES.toNanos(1), TimeUnit.NANOSECONDS);
+        recording = false;
+    }
+
+    /**
+     * One user session step. Weights approximate storefront traffic:
+     * 27% product listing, 3% faceted filtering, 4% typeahead and search, 1% sitemap crawl, 5% blog listing and article, 25% product detail, 20% cart mutation, 10% checkout, 3% admin order listing,
+     * 2% admin batch image upload.
+     */
+    private void runIteration(String token) {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        Product product = products.get(ThreadLocalRandom.current().nextInt(products.size()));
+        if (roll < 27) {
+            // Mostly the plain listing, sometimes narrowed by the storefront's flag filters
+            get("GET /api/products", roll % 9 == 0 ? "/api/products?inStock=true&isOnSale=true" : "/api/products", null);
+        } else if (roll < 30) {
+            get("GET /api/products/filter", "/api/products/filter?brand=" + product.getBrandName()
+                    + (roll % 2 == 0 ? "&spec.motor.min=100" : "&price=10000-25000"), null);
+        } else if (roll < 34) {
+            // Typos and prefixes as typed into a search box
+            String query = SEARCH_QUERIES[ThreadLocalRandom.current().nextInt(SEARCH_QUERIES.length)];
+            String typed = product.getBrandName().toLowerCase();
+            for (int length = 1; length <= Math.min(3, typed.length()); length++) {
+                get("GET /api/products/suggest", "/api/products/suggest?q=" + typed.substring(0, length), null);
+            }
+            get("GET /api/products/search", "/api/products/search?q=" + query, null);
+        } else if (roll < 35) {
+            get("GET /api/sitemap.xml", "/api/sitemap.xml", null);
+            get("GET /api/sitemaps/{name}.xml", "/api/sitemaps/products-0.xml", null);
+        } else if (roll < 40) {
+            get("GET /api/blogs", roll % 2 == 0 ? "/api/blogs?limit=10" : "/api/blogs?category=Guides&limit=10", null);
+            int blog = 1 + ThreadLocalRandom.current().nextInt(Math.max(1, options.get("blogs")));
+            get("GET /api/blogs/{slug}/html", "/api/blogs/sewing-tips-" + blog + "/html", null);
+        } else if (roll < 65) {
+            get("GET /api/products/{id}", "/api/products/" + product.getBrandSlug(), null);
+            get("GET /api/products/{productId}/reviews", "/api/products/" + product.getId() + "/reviews", null);
+        } else if (roll < 85) {
+            send("POST /api/cart/add", "POST", "/api/cart/add",
+                    Map.of("productId", product.getId(), "quantity", 1), token);
+            send("PUT /api/cart/update", "PUT", "/api/cart/update",
+                    Map.of("productId", product.getId(), "quantity", 2), token);
+            get("GET /api/cart", "/api/cart", token);
+        } else if (roll < 95) {
+            send("POST /api/orders", "POST", "/api/orders", orderRequest(product), token);
+            send("DELETE /api/cart/clear", "DELETE", "/api/cart/clear", null, token);
+        } else if (roll < 98) {
+            get("GET /api/orders/admin/all", "/api/orders/admin/all", adminToken);
+        } else {
+            uploadImages(2);
+        }
+    }
+
+    /**
+     * Queues a batch of synthetic images through the async upload endpoint, then polls the
+     * first job. Only the submit call is on the request path, which is what the latency covers.
+     */
+    private void uploadImages(int count) {
+        String boundary = "----loadtest" + System.nanoTime();
+        byte[] image = new byte[256 * 1024];
+        ThreadLocalRandom.current().nextBytes(image);
+        List<byte[]> parts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            parts.add(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"files\"; filename=\"machine-" + i + ".jpg\"\r\n"
+                    + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            parts.add(image);
+            parts.add("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        parts.add(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        boolean success;
+        String jobId = null;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/upload/async"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Authorization", "Bearer " + adminToken)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArrays(parts))
+                    .build();
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            success = response.statusCode() < 400;
+            if (success) {
+                jobId = objectMapper.readTree(response.body()).path("jobs").path(0).path("jobId").asText(null);
+            }
+        } catch (Exception e) {
+            success = false;
+        }
+        if (recording) {
+            clientStats.computeIfAbsent("POST /api/products/upload/async", key -> new EndpointStats())
+                    .recordLatency(System.nanoTime() - start, success);
+        }
+        if (jobId != null) {
+            get("GET /api/products/upload/jobs/{jobId}", "/api/products/upload/jobs/" + jobId, adminToken);
+        }
+    }
+
+    /**
+     * Times a bulk import of synthetic rows, then the same rows again (all updates), then a full
+     * CSV export. Runs once, outside the measured traffic mix.
+     */
+    private void bulkImport(int rows) throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("title", "Bulk Import Machine " + i);
+            row.put("brandName", i % 2 == 0 ? "Usha" : "Singer");
+            row.put("brandSlug", "bulk-import-machine-" + i);
+            row.put("price", 5000 + (i % 400) * 100);
+            row.put("stockQuantity", i % 25);
+            row.put("highlights", List.of("Bulk imported", "Row " + i));
+            row.put("specificationsJson", "{\"type\":\"Computerised\",\"motor\":\"" + (70 + i % 80) + "W\"}");
+            ndjson.append(objectMapper.writeValueAsString(row)).append('\n');
+        }
+        byte[] body = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+        for (String pass : List.of("create", "update")) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/admin/import"))
+                    .timeout(Duration.ofMinutes(10))
+                    .header("Content-Type", "application/x-ndjson")
+                    .header("Authorization", "Bearer " + adminToken)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            System.out.printf("Bulk import (%s) of %d rows: HTTP %d in %d ms: %s%n", pass, rows, response.statusCode(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    response.body().length() > 300 ? response.body().substring(0, 300) + "..." : response.body());
+        }
+        long start = System.nanoTime();
+        HttpResponse<byte[]> export = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/admin/export?format=csv"))
+                .timeout(Duration.ofMinutes(10))
+                .header("Authorization", "Bearer " + adminToken)
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        System.out.printf("CSV export: HTTP %d, %d bytes in %d ms%n", export.statusCode(), export.body().length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Previews and applies 10% off one brand, then schedules 100 off the in-stock products of
+     * another for the next day, and checks that every previewed price is what the set-based
+     * UPDATE wrote.
+     */
+    @SuppressWarnings("unchecked")
+    private void bulkPricing(ProductRepository productRepository) throws Exception {
+        List<Map<String, Object>> requests = List.of(
+                Map.of("filters", Map.of("brand", List.of("Usha")), "adjustment", "PERCENT", "value", -10),
+                Map.of("filters", Map.of("brand", List.of("Singer"), "inStock", List.of("true")), "adjustment", "AMOUNT",
+                        "value", -100, "priceStartDate", LocalDateTime.now().minusHours(1).toString(),
+                        "priceEndDate", LocalDateTime.now().plusDays(1).toString()));
+        for (Map<String, Object> request : requests) {
+            for (boolean dryRun : new boolean[] {true, false}) {
+                Map<String, Object> body = new HashMap<>(request);
+                body.put("dryRun", dryRun);
+                body.put("previewLimit", 1000);
+                long start = System.nanoTime();
+                HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/admin/prices/bulk"))
+                        .timeout(Duration.ofMinutes(5))
+                        .header("Content-Type", "application/json")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
+                System.out.printf("Bulk price %s (%s): HTTP %d in %d ms, matched %s, updated %s%n", request.get("adjustment"),
+                        dryRun ? "dry run" : "applied", response.statusCode(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), result.get("matched"), result.get("updated"));
+                if (dryRun || response.statusCode() != 200) {
+                    continue;
+                }
+                int mismatches = 0;
+                List<Map<String, Object>> changes = (List<Map<String, Object>>) result.get("changes");
+                for (Map<String, Object> change : changes) {
+                    Product product = productRepository.findById(((Number) change.get("productId")).longValue()).orElseThrow();
+                    if (product.getPrice().compareTo(new BigDecimal(change.get("newPrice").toString())) != 0) {
+                        mismatches++;
+                    }
+                }
+                System.out.printf("  %d previewed prices checked, %d differ from the database%n", changes.size(), mismatches);
+            }
+        }
+    }
+
+    private Map<String, Object> orderRequest(Product product) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("productId", product.getId());
+        item.put("quantity", 1);
+        item.put("price", product.getPrice());
+        item.put("originalPrice", product.getOriginalPrice());
+
+        Map<String, Object> address = new HashMap<>();
+        address.put("name", "Load Test User");
+        address.put("phone", "9848012345");
+        address.put("email", "loadtest@example.com");
+        address.put("address", "Door No. 12-3-45, Main Road");
+        address.put("city", "Vijayawada");
+        address.put("state", "Andhra Pradesh");
+        address.put("pincode", "520001");
+
+        return Map.of("items", List.of(item), "shippingAddress", address, "paymentMethod", "cod");
+    }
+
+    private void get(String endpoint, String path, String token) {
+        send(endpoint, "GET", path, null, token);
+    }
+
+    private void send(String endpoint, String method, String path, Object body, String token) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Accept", "application/json");
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            String etag = "GET".equals(method) && token == null ? etags.get(path) : null;
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (body != null) {
+                builder.header("Content-Type", "application/json")
+                        .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+            } else {
+                builder.method(method, HttpRequest.BodyPublishers.noBody());
+            }
+            HttpResponse<byte[]> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+            success = response.statusCode() < 400;
+            if ("GET".equals(method) && token == null) {
+                response.headers().firstValue("ETag").ifPresent(value -> etags.put(path, value));
+            }
+        } catch (Exception e) {
+            success = false;
+        }
+        if (recording) {
+            clientStats.computeIfAbsent(endpoint, key -> new EndpointStats())
+                    .recordLatency(System.nanoTime() - start, success);
+        }
+    }
+
+    private void printReport() {
+        double seconds = options.get("duration");
+        long totalRequests = 0;
+        long totalErrors = 0;
+
+        System.out.println();
+        System.out.printf("%-40s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "SQL/req");
+        for (Map.Entry<String, EndpointStats> entry : new TreeMap<>(clientStats).entrySet()) {
+            EndpointStats stats = entry.getValue();
+            EndpointStats server = EndpointStats.serverSide(entry.getKey());
+            totalRequests += stats.count();
+            totalErrors += stats.errors();
+            System.out.printf("%-40s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.1f%n",
+                    entry.getKey(),
+                    stats.count(),
+                    stats.errors(),
+                    stats.count() / seconds,
+                    stats.percentileMillis(50),
+                    stats.percentileMillis(95),
+                    stats.percentileMillis(99),
+                    server != null ? server.sqlPerRequest() : Double.NaN);
+        }
+        System.out.printf("%nTotal: %d requests, %d errors, %.1f req/s with %d virtual users (%s request threads)%n",
+                totalRequests, totalErrors, totalRequests / seconds, options.get("users"),
+                virtualThreads ? "virtual" : "platform");
+        System.out.printf("Stubbed externals: %d mails, %d Cloudinary uploads%n",
+                LoadTestConfiguration.MAILS_SENT.get(), LoadTestConfiguration.UPLOADS.get());
+        System.out.printf("Response cache: %.0f hits, %.0f not modified, %.0f misses%n",
+                cacheCount("hit"), cacheCount("not_modified"), cacheCount("miss"));
+        Timer publishLatency = meterRegistry.find("websocket.price.publish.latency").timer();
+        System.out.printf("Price updates: %.0f received, %.0f sent in %.0f batch and %.0f legacy frames (net %.0f frames saved), publish latency mean %.1f ms, max %.1f ms%n",
+                count("websocket.price.updates", "stage", "received"), count("websocket.price.updates", "stage", "sent"),
+                count("websocket.price.frames", "result", "sent"), count("websocket.price.frames", "result", "legacy"),
+                count("websocket.price.frames", "result", "saved") - count("websocket.price.frames", "result", "added"),
+                publishLatency != null ? publishLatency.mean(TimeUnit.MILLISECONDS) : Double.NaN,
+                publishLatency != null ? publishLatency.max(TimeUnit.MILLISECONDS) : Double.NaN);
+    }
+
+    private double count(String name, String tag, String value) {
+        Counter counter = meterRegistry.find(name).tag(tag, value).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private double cacheCount(String result) {
+        Counter counter = meterRegistry.find("http.response.cache").tag("result", result).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.machines.cache;
+
+import com.example.machines.entity.Blog;
+import com.example.machines.util.HtmlSanitizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sanitized, pre-rendered article HTML keyed by blog slug. Articles are read far more often than
+ * they are written, so each one is sanitized and gzipped once and then served from memory with
+ * an ETag derived from the rendered bytes. BlogService evicts an article when it is updated or
+ * deleted; a render that raced with an eviction is served but not stored.
+ */
+@Component
+public class BlogHtmlCache {
+
+    @Value("${app.blog.html-cache-max-entries:500}")
+    private int maxEntries;
+
+    private final Map<String, RenderedBlog> rendered = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public record RenderedBlog(Long blogId, String contentHash, long lastModified, byte[] html, byte[] gzip) {
+
+        public String etag() {
+            return "\"" + contentHash + "\"";
+        }
+
+        public String gzipEtag() {
+            return "\"" + contentHash + "-gz\"";
+        }
+    }
+
+    /**
+     * Returns the rendered article for the slug, loading and rendering it on a miss. The loader
+     * throws when the slug does not exist.
+     */
+    public RenderedBlog get(String slug, Function<String, Blog> loader) {
+        RenderedBlog cached = rendered.get(slug);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = evictions.get();
+        RenderedBlog fresh = render(loader.apply(slug));
+        lock.lock();
+        try {
+            if (evictions.get() == stamp && (rendered.size() < maxEntries || rendered.containsKey(slug))) {
+                rendered.put(slug, fresh);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return fresh;
+    }
+
+    public void evict(Long blogId) {
+        lock.lock();
+        try {
+            evictions.incrementAndGet();
+            rendered.values().removeIf(entry -> entry.blogId().equals(blogId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RenderedBlog render(Blog blog) {
+        byte[] html = HtmlSanitizer.sanitize(blog.getContent()).getBytes(StandardCharsets.UTF_8);
+        LocalDateTime modified = blog.getUpdatedAt() != null ? blog.getUpdatedAt() : blog.getCreatedAt();
+        long lastModified = modified != null ? modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+        return new RenderedBlog(blog.getId(), DigestUtils.md5DigestAsHex(html), lastModified, html, gzip(html));
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 3));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.machines.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Passes ContentChangedEvents between nodes when app.websocket.broker=relay. Every cache
+ * derived from content (ContentVersions and so ResponseCacheFilter, JsonFragmentCache, the
+ * search, suggest and filter indexes, the sitemap) lives in one process and is updated by local
+ * events only, so without this a write on one node would leave the others serving the old
+ * content until restarted.
+ *
+ * Each node holds its own STOMP connection to the relay's broker, publishes the events of its
+ * committed writes on /topic/content-changed and publishes the other nodes' events locally,
+ * where the listeners handle them as they handle their own. Clients may not subscribe to the
+ * topic (StompDestinationInterceptor).
+ *
+ * Changes sent while a node is not connected are lost, so after it reconnects it invalidates
+ * everything on its own side and tells the other nodes to do the same: indexes are rebuilt and
+ * cached responses dropped, once.
+ *
+ * ProductSlugIndex needs no events: a stale slug is detected when the product it resolves to
+ * no longer has that slug, and a miss falls back to the database.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker", havingValue = "relay")
+public class ContentChangeBroadcaster {
+
+    public static final String DESTINATION = "/topic/content-changed";
+
+    // What a node that may have missed changes publishes, locally and to the others
+    private static final List<ContentChangedEvent.ContentType> EVERYTHING = List.of(
+            ContentChangedEvent.ContentType.PRODUCT, ContentChangedEvent.ContentType.REVIEW,
+            ContentChangedEvent.ContentType.BLOG);
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${app.websocket.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${app.websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Identifies this node's own messages, which come back on the topic
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private ReactorNettyTcpStompClient client;
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+    // Runs the listeners for other nodes' changes in order, off the connection's I/O thread
+    private ExecutorService listenerExecutor;
+
+    private volatile StompSession session;
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    // Set when changes may have been missed in either direction; cleared by the next connect
+    private final AtomicBoolean resyncOnConnect = new AtomicBoolean();
+
+    /**
+     * A change as sent between nodes
+     */
+    public record ContentChange(String node, ContentChangedEvent.ContentType type, Long id) {
+    }
+
+    @PostConstruct
+    public void init() {
+        heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("content-change-heartbeat-");
+        heartbeatScheduler.initialize();
+        listenerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-change-listener");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        client = new ReactorNettyTcpStompClient(relayHost, relayPort);
+        client.setMessageConverter(converter);
+        client.setTaskScheduler(heartbeatScheduler);
+        client.setDefaultHeartbeat(new long[] {heartbeatMs, heartbeatMs});
+
+        // Subscribed before the indexes load on ApplicationReadyEvent, so no change falls in between
+        try {
+            connect().get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("Content change broadcast not connected to " + relayHost + ":" + relayPort
+                    + ", retrying: " + e.getMessage());
+            resyncOnConnect.set(true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+        client.shutdown();
+        listenerExecutor.shutdown();
+        heartbeatScheduler.shutdown();
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public void reconnect() {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            connect();
+        }
+    }
+
+    // After every other listener, so the change is only sent once this node has applied it
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (event.isFromOtherNode()) {
+            return;
+        }
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            resyncOnConnect.set(true);
+            return;
+        }
+        try {
+            current.send(DESTINATION, new ContentChange(nodeId, event.getType(), event.getId()));
+        } catch (RuntimeException e) {
+            System.err.println("Content change not broadcast: " + e.getMessage());
+            resyncOnConnect.set(true);
+        }
+    }
+
+    private CompletableFuture<StompSession> connect() {
+        if (!connecting.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Already connecting"));
+        }
+        StompHeaders headers = new StompHeaders();
+        headers.setLogin(relaySystemLogin);
+        headers.setPasscode(relaySystemPasscode);
+        if (!relayVirtualHost.isBlank()) {
+            headers.setHost(relayVirtualHost);
+        }
+        return client.connectAsync(headers, new Handler()).whenComplete((connected, error) -> {
+            connecting.set(false);
+            if (error != null) {
+                resyncOnConnect.set(true);
+            }
+        });
+    }
+
+    private void resync(StompSession connected) {
+        for (ContentChangedEvent.ContentType type : EVERYTHING) {
+            connected.send(DESTINATION, new ContentChange(nodeId, type, null));
+            listenerExecutor.execute(() -> eventPublisher.publishEvent(ContentChangedEvent.fromOtherNode(type, null)));
+        }
+        System.out.println("Content change broadcast reconnected; invalidated all cached content");
+    }
+
+    private final class Handler extends StompSessionHandlerAdapter {
+
+        @Override
+        public void afterConnected(StompSession connected, StompHeaders connectedHeaders) {
+            connected.subscribe(DESTINATION, this);
+            session = connected;
+            if (resyncOnConnect.getAndSet(false)) {
+                resync(connected);
+            }
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return ContentChange.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            ContentChange change = (ContentChange) payload;
+            if (nodeId.equals(change.node())) {
+                return;
+            }
+            listenerExecutor.execute(() -> {
+                try {
+                    eventPublisher.publishEvent(ContentChangedEvent.fromOtherNode(change.type(), change.id()));
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to apply content change from another node: " + e.getMessage());
+                }
+            });
+        }
+
+        @Override
+        public void handleException(StompSession failed, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            System.err.println("Content change broadcast error: " + exception.getMessage());
+        }
+
+        @Override
+        public void handleTransportError(StompSession failed, Throwable exception) {
+            System.err.println("Content change broadcast disconnected: " + exception.getMessage());
+            session = null;
+            resyncOnConnect.set(true);
+        }
+    }
+}
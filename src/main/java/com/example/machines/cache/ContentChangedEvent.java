@@ -0,0 +1,41 @@
+package com.example.machines.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the write side whenever public content changes, so caches derived from it can
+ * be invalidated. Listeners run after the surrounding transaction commits. With several nodes
+ * ContentChangeBroadcaster passes each event on to the others, which publish it again with
+ * fromOtherNode set.
+ */
+@Getter
+@AllArgsConstructor
+public class ContentChangedEvent {
+
+    public enum ContentType {
+        PRODUCT, REVIEW, BLOG
+    }
+
+    private final ContentType type;
+    // Product id for PRODUCT and REVIEW, blog id for BLOG; null when unknown
+    private final Long id;
+    // True for a change made on another node, which is not broadcast again
+    private final boolean fromOtherNode;
+
+    public static ContentChangedEvent product(Long productId) {
+        return new ContentChangedEvent(ContentType.PRODUCT, productId, false);
+    }
+
+    public static ContentChangedEvent reviews(Long productId) {
+        return new ContentChangedEvent(ContentType.REVIEW, productId, false);
+    }
+
+    public static ContentChangedEvent blog(Long blogId) {
+        return new ContentChangedEvent(ContentType.BLOG, blogId, false);
+    }
+
+    public static ContentChangedEvent fromOtherNode(ContentType type, Long id) {
+        return new ContentChangedEvent(type, id, true);
+    }
+}
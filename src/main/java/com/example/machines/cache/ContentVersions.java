@@ -0,0 +1,74 @@
+package com.example.machines.cache;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generation counters for cached content regions. A cached response remembers the generation
+ * it was rendered under and is served only while that generation is still current, so a bump
+ * invalidates every response of the region at once without touching the cache itself.
+ *
+ * Regions: "products" (listing and detail), "blogs", and "reviews:{productId}". A review
+ * change without a product id bumps every reviews region.
+ *
+ * The bump runs after every listener ordered at DERIVED_DATA_ORDER, i.e. the indexes and
+ * caches responses are rendered from. A request that sees the new generation therefore also
+ * sees the updated data, and cannot cache a stale result under it.
+ */
+@Component
+public class ContentVersions {
+
+    public static final String PRODUCTS = "products";
+    public static final String BLOGS = "blogs";
+    private static final String REVIEWS_PREFIX = "reviews:";
+
+    // Order of the ContentChangedEvent listeners that update derived data, ahead of the bump
+    public static final int DERIVED_DATA_ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public static String reviews(Long productId) {
+        return REVIEWS_PREFIX + productId;
+    }
+
+    public long current(String region) {
+        AtomicLong generation = generations.get(region);
+        return generation != null ? generation.get() : 0L;
+    }
+
+    public void bump(String region) {
+        generations.computeIfAbsent(region, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        switch (event.getType()) {
+            case PRODUCT -> {
+                bump(PRODUCTS);
+                // Product deletes remove its reviews too
+                if (event.getId() != null) {
+                    bump(reviews(event.getId()));
+                }
+            }
+            case REVIEW -> {
+                if (event.getId() != null) {
+                    bump(reviews(event.getId()));
+                } else {
+                    generations.forEach((region, generation) -> {
+                        if (region.startsWith(REVIEWS_PREFIX)) {
+                            generation.incrementAndGet();
+                        }
+                    });
+                }
+            }
+            case BLOG -> bump(BLOGS);
+        }
+    }
+}
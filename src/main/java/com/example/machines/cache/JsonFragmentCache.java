@@ -0,0 +1,89 @@
+package com.example.machines.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Pre-serialized JSON per entity version. A fragment is reused while the entity's version
+ * (updatedAt, or createdAt for immutable rows) is unchanged, and is also evicted on
+ * ContentChangedEvent because some writes, such as gallery-only edits, do not bump updatedAt.
+ * Fragments are produced by the application ObjectMapper, so they are byte-for-byte what the
+ * Jackson message converter would have written.
+ */
+@Component
+public class JsonFragmentCache {
+
+    public static final String PRODUCT = "product";
+    public static final String REVIEW = "review";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.cache.fragment-max-entries:20000}")
+    private int maxEntries;
+
+    private final Map<String, Fragment> fragments = new ConcurrentHashMap<>();
+
+    private record Fragment(Object version, byte[] json) {
+    }
+
+    /**
+     * Returns the cached JSON for the entity, serializing the DTO from the supplier only when
+     * the cached fragment is missing or was rendered from a different version
+     */
+    public byte[] get(String type, Long id, Object version, Supplier<?> dto) {
+        if (id == null || version == null) {
+            return serialize(dto.get());
+        }
+        String key = type + ":" + id;
+        Fragment cached = fragments.get(key);
+        if (cached != null && Objects.equals(cached.version(), version)) {
+            return cached.json();
+        }
+        byte[] json = serialize(dto.get());
+        if (fragments.size() < maxEntries || cached != null) {
+            fragments.put(key, new Fragment(version, json));
+        }
+        return json;
+    }
+
+    public void evict(String type, Long id) {
+        fragments.remove(type + ":" + id);
+    }
+
+    @Order(ContentVersions.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (event.getId() == null) {
+            // Any product may have changed
+            if (event.getType() == ContentChangedEvent.ContentType.PRODUCT) {
+                fragments.keySet().removeIf(key -> key.startsWith(PRODUCT + ":"));
+            }
+            return;
+        }
+        switch (event.getType()) {
+            case PRODUCT -> evict(PRODUCT, event.getId());
+            // Review events carry the product id; ReviewService evicts deleted reviews by id.
+            // Blog listings are paged summaries and are not served from fragments.
+            case REVIEW, BLOG -> { }
+        }
+    }
+
+    private byte[] serialize(Object dto) {
+        try {
+            return objectMapper.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize " + dto.getClass().getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+}
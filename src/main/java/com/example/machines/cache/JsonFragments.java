@@ -0,0 +1,54 @@
+package com.example.machines.cache;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A JSON array assembled from pre-serialized element fragments. Written to the response by
+ * JsonFragmentsHttpMessageConverter without going through Jackson again.
+ */
+public class JsonFragments {
+
+    private final List<byte[]> fragments;
+
+    public JsonFragments(List<byte[]> fragments) {
+        this.fragments = fragments;
+    }
+
+    public List<byte[]> getFragments() {
+        return fragments;
+    }
+
+    /**
+     * Length of the assembled array: brackets, elements and the commas between them
+     */
+    public long contentLength() {
+        long length = 2 + Math.max(0, fragments.size() - 1);
+        for (byte[] fragment : fragments) {
+            length += fragment.length;
+        }
+        return length;
+    }
+
+    /**
+     * The assembled array for Jackson, so a page of fragments can sit inside a larger response
+     * (e.g. next to facet counts) without re-serializing its elements
+     */
+    @JsonValue
+    public RawValue toRawValue() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream((int) contentLength());
+        json.write('[');
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                json.write(',');
+            }
+            json.writeBytes(fragments.get(i));
+        }
+        json.write(']');
+        return new RawValue(json.toString(StandardCharsets.UTF_8));
+    }
+}
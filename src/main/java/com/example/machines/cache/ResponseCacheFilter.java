@@ -0,0 +1,292 @@
+package com.example.machines.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the serialized bodies of public catalogue and blog GETs together with a strong ETag.
+ * While the content region's generation is unchanged, a matching If-None-Match is answered with
+ * 304 and any other request is answered from the cached bytes, both without reaching the
+ * controller. Write-side ContentChangedEvents bump the generation and so retire the entries.
+ *
+ * Entries are keyed by path and the query parameters the endpoint reads, sorted, so unknown or
+ * reordered parameters share one entry instead of each storing another copy of the body. The
+ * cache holds at most max-bytes of bodies; storing past that drops retired entries and then the
+ * least recently used ones.
+ *
+ * Runs after the Spring Security chain, so CORS and security headers are already applied.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern PRODUCT_REVIEWS = Pattern.compile("^/api/products/(\\d+)/reviews$");
+    private static final Pattern PRODUCTS = Pattern.compile("^/api/products(/[^/]+)?$");
+    private static final Pattern BLOGS = Pattern.compile("^/api/blogs(/[^/]+)*$");
+
+    // Query parameters each cached endpoint reads; anything else cannot change the response
+    private static final Set<String> LISTING_PARAMS = Set.of("brand", "price", "inStock", "isOnSale", "isNew");
+    private static final Map<String, Set<String>> PARAMS_BY_PATH = Map.of(
+            "/api/products", LISTING_PARAMS,
+            "/api/products/filter", Set.of("brand", "price", "inStock", "isOnSale", "isNew", "limit", "offset"),
+            "/api/products/search", Set.of("q", "brand", "price", "limit", "offset"),
+            "/api/products/suggest", Set.of("q", "limit"),
+            "/api/blogs", Set.of("category", "cursor", "limit"));
+    private static final String SPEC_PARAM_PREFIX = "spec.";
+
+    // Share of max-bytes kept after an eviction pass, so a full cache is not scanned on every store
+    private static final double EVICT_TO = 0.9;
+
+    @Autowired
+    private ContentVersions contentVersions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache.max-age-seconds:0}")
+    private long maxAgeSeconds;
+
+    @Value("${app.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.cache.max-body-bytes:8388608}")
+    private int maxBodyBytes;
+
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    // Ticks on every hit and store; an entry's stamp orders it for least-recently-used eviction
+    private final AtomicLong clock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private static final class CachedResponse {
+        private final String region;
+        private final long generation;
+        private final String etag;
+        private final String contentType;
+        private final byte[] body;
+        private volatile long lastUsed;
+
+        CachedResponse(String region, long generation, String etag, String contentType, byte[] body) {
+            this.region = region;
+            this.generation = generation;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("http.response.cache.bytes", cachedBytes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || regionFor(pathOf(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String region = regionFor(pathOf(request));
+        String key = cacheKey(request);
+        long generation = contentVersions.current(region);
+
+        CachedResponse cached = cache.get(key);
+        if (cached != null && cached.generation == generation) {
+            cached.lastUsed = clock.incrementAndGet();
+            writeCacheHeaders(response, cached.etag);
+            if (etagMatches(request, cached.etag)) {
+                count("not_modified");
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            count("hit");
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(cached.contentType);
+            response.setContentLength(cached.body.length);
+            response.getOutputStream().write(cached.body);
+            return;
+        }
+
+        count("miss");
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || wrapper.containsHeader(HttpHeaders.SET_COOKIE)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        byte[] body = wrapper.getContentAsByteArray();
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        writeCacheHeaders(wrapper, etag);
+        if (body.length <= maxBodyBytes) {
+            store(key, new CachedResponse(region, generation, etag, wrapper.getContentType(), body));
+        }
+
+        if (etagMatches(request, etag)) {
+            wrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            wrapper.resetBuffer();
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void store(String key, CachedResponse entry) {
+        entry.lastUsed = clock.incrementAndGet();
+        CachedResponse previous = cache.put(key, entry);
+        long total = cachedBytes.addAndGet(entry.body.length - (previous != null ? previous.body.length : 0));
+        if (total > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Drops entries whose region has moved on, then the least recently used ones, until the cache
+     * is back under its low-water mark
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            // Another request is already evicting
+            return;
+        }
+        try {
+            long target = (long) (maxBytes * EVICT_TO);
+            List<Map.Entry<String, CachedResponse>> current = new ArrayList<>();
+            for (Map.Entry<String, CachedResponse> cached : cache.entrySet()) {
+                CachedResponse value = cached.getValue();
+                if (value.generation != contentVersions.current(value.region)) {
+                    remove(cached.getKey(), value);
+                } else {
+                    current.add(cached);
+                }
+            }
+            if (cachedBytes.get() <= target) {
+                return;
+            }
+            current.sort(Comparator.comparingLong(cached -> cached.getValue().lastUsed));
+            for (Map.Entry<String, CachedResponse> cached : current) {
+                if (cachedBytes.get() <= target) {
+                    break;
+                }
+                remove(cached.getKey(), cached.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(String key, CachedResponse entry) {
+        if (cache.remove(key, entry)) {
+            cachedBytes.addAndGet(-entry.body.length);
+        }
+    }
+
+    private void writeCacheHeaders(HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds + ", must-revalidate");
+        response.addHeader(HttpHeaders.VARY, "Accept-Encoding");
+    }
+
+    private boolean etagMatches(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("http.response.cache", "result", result).increment();
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String cacheKey(HttpServletRequest request) {
+        return cacheKey(pathOf(request), request.getParameterMap());
+    }
+
+    /**
+     * The path followed by the parameters the endpoint reads, sorted by name; repeated values
+     * keep their order. Listing and filter endpoints also read spec.* parameters.
+     */
+    static String cacheKey(String path, Map<String, String[]> params) {
+        Set<String> allowed = PARAMS_BY_PATH.getOrDefault(path, Set.of());
+        boolean specs = path.equals("/api/products") || path.equals("/api/products/filter");
+        Map<String, String[]> read = new TreeMap<>();
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            String name = param.getKey();
+            if (allowed.contains(name) || (specs && name.startsWith(SPEC_PARAM_PREFIX))) {
+                read.put(name, param.getValue());
+            }
+        }
+        StringBuilder key = new StringBuilder("GET ").append(path);
+        char separator = '?';
+        for (Map.Entry<String, String[]> param : read.entrySet()) {
+            for (String value : param.getValue()) {
+                // Encoded, so a value containing & or = cannot pass for another parameter
+                key.append(separator).append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Maps a public read path to its content region, or null when the path is not cacheable
+     */
+    static String regionFor(String path) {
+        // Rendered blog HTML carries its own ETag, Last-Modified and gzip variant
+        if (path.contains("/admin") || path.contains("/upload") || path.endsWith("/html")) {
+            return null;
+        }
+        Matcher reviews = PRODUCT_REVIEWS.matcher(path);
+        if (reviews.matches()) {
+            return ContentVersions.reviews(Long.valueOf(reviews.group(1)));
+        }
+        if (PRODUCTS.matcher(path).matches()) {
+            return ContentVersions.PRODUCTS;
+        }
+        if (BLOGS.matcher(path).matches()) {
+            return ContentVersions.BLOGS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.machines.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executors for @Async (email sending) and @Scheduled (price schedule checks).
+ *
+ * The WebSocket broker registers its own executor beans, which makes Spring Boot back off from
+ * its auto-configured task executor; without this class @Async falls back to an unbounded
+ * thread-per-task executor and @Scheduled jobs share the broker's heartbeat scheduler.
+ *
+ * With spring.threads.virtual.enabled=true on a Java 21 runtime ("virtual-threads" profile) both
+ * run on virtual threads; on older runtimes the property is ignored, as Spring Boot itself does.
+ * Email sending stays capped because Jakarta Mail's SMTP transport holds monitors during network
+ * I/O, which pins the carrier thread. The cap is a semaphore taken inside the task, so tasks
+ * beyond it wait on their own virtual threads; the submitting request thread never does.
+ */
+@Configuration
+public class AsyncConfig implements AsyncConfigurer, SchedulingConfigurer, DisposableBean {
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${app.async.max-concurrency:8}")
+    private int asyncMaxConcurrency;
+
+    private ThreadPoolTaskExecutor platformAsyncExecutor;
+    private ThreadPoolTaskScheduler platformScheduler;
+
+    @Override
+    public Executor getAsyncExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+            executor.setVirtualThreads(true);
+            // Not setConcurrencyLimit: that throttles in execute() and would block the caller
+            Semaphore permits = new Semaphore(asyncMaxConcurrency, true);
+            executor.setTaskDecorator(task -> () -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.err.println("Async task dropped, interrupted while waiting to run");
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+            return executor;
+        }
+        platformAsyncExecutor = new ThreadPoolTaskExecutor();
+        // A pool only grows past its core size once the queue is full, so the cap is the core
+        // size; idle threads still time out
+        platformAsyncExecutor.setCorePoolSize(asyncMaxConcurrency);
+        platformAsyncExecutor.setMaxPoolSize(asyncMaxConcurrency);
+        platformAsyncExecutor.setAllowCoreThreadTimeOut(true);
+        platformAsyncExecutor.setQueueCapacity(1000);
+        platformAsyncExecutor.setThreadNamePrefix("async-");
+        platformAsyncExecutor.initialize();
+        return platformAsyncExecutor;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setThreadNamePrefix("scheduling-");
+            scheduler.setVirtualThreads(true);
+            taskRegistrar.setScheduler(scheduler);
+        } else {
+            platformScheduler = new ThreadPoolTaskScheduler();
+            platformScheduler.setPoolSize(2);
+            platformScheduler.setThreadNamePrefix("scheduling-");
+            platformScheduler.initialize();
+            taskRegistrar.setTaskScheduler(platformScheduler);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (platformAsyncExecutor != null) {
+            platformAsyncExecutor.shutdown();
+        }
+        if (platformScheduler != null) {
+            platformScheduler.shutdown();
+        }
+    }
+}
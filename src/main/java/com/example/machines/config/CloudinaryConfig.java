@@ -20,12 +20,19 @@ public class CloudinaryConfig {
     @Value("${CLOUDINARY_API_SECRET}")
     private String apiSecret;
 
+    // Optional API host override, e.g. a local stand-in endpoint for tests
+    @Value("${CLOUDINARY_UPLOAD_PREFIX:}")
+    private String uploadPrefix;
+
     @Bean
     public Cloudinary cloudinary() {
         Map<String, String> config = new HashMap<>();
         config.put("cloud_name", cloudName);
         config.put("api_key", apiKey);
         config.put("api_secret", apiSecret);
+        if (!uploadPrefix.isBlank()) {
+            config.put("upload_prefix", uploadPrefix);
+        }
         return new Cloudinary(config);
     }
 }
@@ -0,0 +1,65 @@
+package com.example.machines.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records a timer for every public method in the service package.
+ * Exposed as "service.method" with class, method, outcome and exception tags,
+ * so slow paths like createOrder or checkScheduledPriceChanges show up on /actuator/prometheus.
+ *
+ * The in-memory indexes and the real-time fan-out are left out: their calls take microseconds
+ * and run per keystroke or per event, so timing them would cost about as much as the call.
+ * Timers are registered once per tag combination and looked up from a map afterwards.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private static final String METRIC_NAME = "service.method";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    private record TimerKey(Class<?> type, String method, String exception) {
+    }
+
+    @Around("execution(public * com.example.machines.service..*(..))"
+            + " && !within(com.example.machines.service.ProductSuggestIndex)"
+            + " && !within(com.example.machines.service.ProductFilterIndex)"
+            + " && !within(com.example.machines.service.ProductSlugIndex)"
+            + " && !within(com.example.machines.service.PriceUpdateCoalescer)"
+            + " && !within(com.example.machines.service.SseEmitterRegistry)")
+    public Object timeServiceMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            sample.stop(timer(joinPoint.getSignature().getDeclaringType(), joinPoint.getSignature().getName(), exception));
+        }
+    }
+
+    private Timer timer(Class<?> type, String method, String exception) {
+        return timers.computeIfAbsent(new TimerKey(type, method, exception), key -> Timer.builder(METRIC_NAME)
+                .description("Service layer method execution time")
+                .tag("class", key.type().getSimpleName())
+                .tag("method", key.method())
+                .tag("outcome", "none".equals(key.exception()) ? "SUCCESS" : "ERROR")
+                .tag("exception", key.exception())
+                .register(meterRegistry));
+    }
+}
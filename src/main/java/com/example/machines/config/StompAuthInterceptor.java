@@ -0,0 +1,74 @@
+package com.example.machines.config;
+
+import com.example.machines.service.RealtimeEvent;
+import com.example.machines.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Authenticates STOMP connections. A CONNECT frame may carry the same JWT the REST API takes,
+ * as an "Authorization: Bearer ..." native header; it is verified once, and the session's
+ * principal is named after the token's role and userId ("user:42", "admin:7", see
+ * RealtimeEvent.principalName). That is the name WebSocketService passes to
+ * convertAndSendToUser, so /user/queue/* messages reach exactly that user's sessions through
+ * the broker's user registry, and never an admin who happens to have the same id.
+ *
+ * A CONNECT without a token stays anonymous and can subscribe to the public topics. A token
+ * that is invalid, expired or has no userId is rejected, and the client gets an ERROR frame.
+ * The principal lasts for the connection; a token expiring later does not end it.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        String authorization = accessor.getFirstNativeHeader(AUTHORIZATION_HEADER);
+        if (authorization == null || authorization.isBlank()) {
+            return message;
+        }
+        if (!authorization.startsWith(BEARER_PREFIX)) {
+            throw new MessageDeliveryException(message, "Authorization header must be a Bearer token");
+        }
+        Claims claims;
+        try {
+            // One parse verifies the signature and the expiry
+            claims = jwtUtil.getClaims(authorization.substring(BEARER_PREFIX.length()).trim());
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new MessageDeliveryException(message, "Invalid or expired token");
+        }
+        if (!(claims.get("userId") instanceof Number userId)) {
+            throw new MessageDeliveryException(message, "Token has no userId");
+        }
+        Object role = claims.get("role");
+        List<SimpleGrantedAuthority> authorities = role instanceof String name
+                ? List.of(new SimpleGrantedAuthority("ROLE_" + name))
+                : List.of();
+        // The CONNECT accessor is still mutable here, and the session keeps this user for later frames
+        accessor.setUser(new UsernamePasswordAuthenticationToken(
+                RealtimeEvent.principalName(role, userId.longValue()), null, authorities));
+        return message;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.machines.config;
+
+import com.example.machines.cache.ContentChangeBroadcaster;
+import com.example.machines.service.WebSocketService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Limits the destinations client frames may name. Everything on /topic and /queue is sent by
+ * the server, so a client SEND is only accepted for /app; a SEND to /topic, /queue or /user
+ * would otherwise go straight to the broker and reach every subscriber, or another user.
+ *
+ * With the broker relay the nodes talk to each other over ordinary broker topics (the user
+ * registry and unresolved user messages, see WebSocketConfig, and content changes, see
+ * ContentChangeBroadcaster). Clients may not subscribe to
+ * those, nor use wildcard destinations, which the simple broker (Ant patterns) and the external
+ * brokers (# and *) would match against them too.
+ *
+ * The admin broadcasts (WebSocketService.ADMIN_DESTINATIONS: every user's order updates, image
+ * upload jobs) may only be subscribed to by a session that connected with an admin's JWT, as
+ * the SSE stream only sends them to admins.
+ *
+ * A rejected frame gets the client an ERROR frame, as a rejected CONNECT does.
+ */
+@Component
+public class StompDestinationInterceptor implements ChannelInterceptor {
+
+    private static final String APP_PREFIX = "/app/";
+
+    private static final List<String> INTERNAL_DESTINATIONS = List.of(
+            WebSocketConfig.USER_REGISTRY_BROADCAST, WebSocketConfig.UNRESOLVED_USER_BROADCAST,
+            ContentChangeBroadcaster.DESTINATION);
+
+    // Ant pattern characters for the simple broker, wildcards for RabbitMQ and Artemis
+    private static final String WILDCARD_CHARACTERS = "*?{#>";
+
+    private static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        StompCommand command = accessor.getCommand();
+        if (command != StompCommand.SEND && command != StompCommand.SUBSCRIBE) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || destination.isBlank()) {
+            throw new MessageDeliveryException(message, command + " needs a destination");
+        }
+        if (command == StompCommand.SEND && !destination.startsWith(APP_PREFIX)) {
+            throw new MessageDeliveryException(message, "Clients may only send to " + APP_PREFIX + "*, not " + destination);
+        }
+        if (isInternal(destination)) {
+            throw new MessageDeliveryException(message, "Destination is reserved for the server: " + destination);
+        }
+        if (command == StompCommand.SUBSCRIBE && hasWildcard(destination)) {
+            throw new MessageDeliveryException(message, "Wildcard subscriptions are not allowed: " + destination);
+        }
+        if (command == StompCommand.SUBSCRIBE && WebSocketService.ADMIN_DESTINATIONS.contains(destination)
+                && !isAdmin(accessor.getUser())) {
+            throw new MessageDeliveryException(message, "Admin access required for " + destination);
+        }
+        return message;
+    }
+
+    // The principal StompAuthInterceptor set on CONNECT, with the token's role as an authority
+    private static boolean isAdmin(Principal user) {
+        if (!(user instanceof Authentication authentication)) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (ADMIN_AUTHORITY.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInternal(String destination) {
+        for (String internal : INTERNAL_DESTINATIONS) {
+            if (destination.startsWith(internal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasWildcard(String destination) {
+        for (int i = 0; i < destination.length(); i++) {
+            if (WILDCARD_CHARACTERS.indexOf(destination.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
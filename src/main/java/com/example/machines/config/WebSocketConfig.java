@@ -1,19 +1,162 @@
 package com.example.machines.config;
 
+import com.example.machines.service.WebSocketService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * STOMP over WebSocket on /ws. With app.websocket.broker=simple (the default) subscriptions
+ * live in this process, which is only correct with a single node. With
+ * app.websocket.broker=relay every /topic and /queue message goes through an external STOMP
+ * broker (RabbitMQ with the STOMP plugin, ActiveMQ Artemis), so a broadcast or order update
+ * sent on one node reaches clients connected to any node.
+ *
+ * Client frames are handled by a fixed inbound pool (app.websocket.inbound.pool-size) with a
+ * bounded queue, and frames to clients are sent by a fixed outbound pool
+ * (app.websocket.outbound.pool-size) with an unbounded queue. Both pools start all their threads:
+ * a pool that only grows once its queue is full would never use more than its core threads. A
+ * broadcast is one outbound task per subscriber, so with thousands of subscribers a bounded
+ * outbound queue would reject deliveries. Each session buffers what it cannot send yet; a client
+ * that falls more than send-time-limit-ms or send-buffer-size-limit behind is disconnected
+ * (status 4500) instead of holding an outbound thread, so one slow consumer does not delay a
+ * broadcast for everyone else. Traffic is counted by WebSocketMetrics, inbound frames only once
+ * the interceptors below have accepted them.
+ *
+ * StompAuthInterceptor binds each CONNECT carrying a JWT to its userId, which is what
+ * /user destinations are resolved against. StompDestinationInterceptor then keeps client frames
+ * off the server's destinations: clients send only to /app and cannot subscribe to the topics
+ * the nodes use among themselves.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Nodes share their connected users on this topic, and pass on user messages they cannot
+    // deliver; StompDestinationInterceptor keeps clients off both
+    static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+    static final String UNRESOLVED_USER_BROADCAST = "/topic/unresolved-user-destination";
+
+    @Value("${app.websocket.broker:simple}")
+    private String broker;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${app.websocket.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${app.websocket.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${app.websocket.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${app.websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Server and expected client heartbeat interval; 0 disables heartbeats
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${app.websocket.inbound.pool-size:16}")
+    private int inboundPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.pool-size:32}")
+    private int outboundPoolSize;
+
+    @Value("${app.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${app.websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.time-to-first-message-ms:30000}")
+    private int timeToFirstMessageMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StompAuthInterceptor stompAuthInterceptor;
+
+    @Autowired
+    private StompDestinationInterceptor stompDestinationInterceptor;
+
+    // Defined by @EnableWebSocketMessageBroker; lazy because that configuration also reads this class
+    @Autowired
+    @Lazy
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    private WebSocketMetrics metrics;
+
+    @PostConstruct
+    public void init() {
+        // SUBSCRIBEs are tagged with the server's destinations even before it first sends to them
+        List<String> serverDestinations = new ArrayList<>();
+        for (String destination : WebSocketService.DESTINATIONS) {
+            serverDestinations.add(destination);
+            if (destination.startsWith("/queue/")) {
+                serverDestinations.add("/user" + destination);
+            }
+        }
+        metrics = new WebSocketMetrics(meterRegistry, serverDestinations);
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple in-memory message broker to carry messages back to the client
-        config.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(broker)) {
+            // Relay to an external STOMP broker; one system connection per node plus one per client session
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs)
+                    // Resolve /user destinations for users connected to other nodes
+                    .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST)
+                    .setUserDestinationBroadcast(UNRESOLVED_USER_BROADCAST);
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            System.out.println("WebSocket broker relay to " + relayHost + ":" + relayPort);
+        } else if ("simple".equalsIgnoreCase(broker)) {
+            // Enable a simple in-memory message broker to carry messages back to the client
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        } else {
+            throw new IllegalArgumentException("Unknown app.websocket.broker: " + broker + ". Expected simple or relay");
+        }
         // Prefix for messages from client to server
         config.setApplicationDestinationPrefixes("/app");
         // User destination prefix for user-specific messages
@@ -27,5 +170,32 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setMessageSizeLimit(messageSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setTimeToFirstMessage(timeToFirstMessageMs)
+                .addDecoratorFactory(metrics);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundPoolSize)
+                .maxPoolSize(inboundPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+        // Counted last, so rejected frames are neither counted nor tag destinations
+        registration.interceptors(stompAuthInterceptor, stompDestinationInterceptor, metrics.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Queue capacity left at its unbounded default; per-session send limits bound the backlog
+        registration.taskExecutor()
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize);
+        registration.interceptors(metrics.outbound());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.machines.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * STOMP traffic counters. "websocket.messages" counts frames by direction (inbound from
+ * clients, outbound to clients), message type and destination; an outbound broadcast to a topic
+ * counts once per subscriber. "websocket.sessions" counts sessions opened and closed, the closes
+ * tagged with their status code: 4500 is a session closed for exceeding the send time or buffer
+ * limit, i.e. a slow consumer.
+ *
+ * Destinations are tagged without the session suffix that /user destinations resolve to. Clients
+ * can name destinations of their own choosing, so only the server's destinations get a tag of
+ * their own: those known up front and those it sends to, at most MAX_DESTINATIONS. Any other
+ * destination a client names is tagged "other".
+ */
+class WebSocketMetrics implements WebSocketHandlerDecoratorFactory {
+
+    static final int MAX_DESTINATIONS = 200;
+
+    private static final String INBOUND = "inbound";
+    private static final String OUTBOUND = "outbound";
+
+    // "/queue/order-updates-user1a2b3c" as resolved from "/user/queue/order-updates"
+    private static final Pattern USER_SESSION_SUFFIX = Pattern.compile("-user[^/]+$");
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> messageCounters = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> destinations = new ConcurrentHashMap<>();
+    private final Counter sessionsOpened;
+
+    WebSocketMetrics(MeterRegistry meterRegistry, Collection<String> serverDestinations) {
+        this.meterRegistry = meterRegistry;
+        this.sessionsOpened = meterRegistry.counter("websocket.sessions", "event", "opened", "status", "none");
+        for (String destination : serverDestinations) {
+            destinations.put(destination, Boolean.TRUE);
+        }
+    }
+
+    ChannelInterceptor inbound() {
+        return new CountingInterceptor(INBOUND);
+    }
+
+    ChannelInterceptor outbound() {
+        return new CountingInterceptor(OUTBOUND);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessionsOpened.increment();
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                meterRegistry.counter("websocket.sessions", "event", "closed",
+                        "status", String.valueOf(closeStatus.getCode())).increment();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private void count(String direction, Message<?> message) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.HEARTBEAT) {
+            return;
+        }
+        String typeTag = type != null ? type.name() : "OTHER";
+        String destination = destinationTag(message, OUTBOUND.equals(direction));
+        // Counters are cached per tag combination: outbound broadcasts pass here once per subscriber
+        messageCounters.computeIfAbsent(direction + '|' + typeTag + '|' + destination,
+                key -> meterRegistry.counter("websocket.messages",
+                        "direction", direction, "type", typeTag, "destination", destination)).increment();
+    }
+
+    // Only frames the server sends may add a destination
+    private String destinationTag(Message<?> message, boolean claim) {
+        // Outbound user messages keep the destination the client subscribed to in this header
+        Object original = message.getHeaders().get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        String destination = original instanceof String text ? text : SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return "none";
+        }
+        destination = USER_SESSION_SUFFIX.matcher(destination).replaceFirst("");
+        if (destinations.containsKey(destination)) {
+            return destination;
+        }
+        if (!claim || destinations.size() >= MAX_DESTINATIONS) {
+            return "other";
+        }
+        destinations.put(destination, Boolean.TRUE);
+        return destination;
+    }
+
+    private class CountingInterceptor implements ChannelInterceptor {
+
+        private final String direction;
+
+        CountingInterceptor(String direction) {
+            this.direction = direction;
+        }
+
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            count(direction, message);
+            return message;
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.example.machines.controller;
 
+import com.example.machines.cache.BlogHtmlCache;
 import com.example.machines.dto.BlogRequest;
 import com.example.machines.dto.BlogResponse;
 import com.example.machines.service.BlogService;
+import com.example.machines.util.AcceptEncoding;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/blogs")
@@ -21,9 +28,30 @@ public class BlogController {
     @Autowired
     private BlogService blogService;
 
+    @Value("${app.cache.max-age-seconds:0}")
+    private long maxAgeSeconds;
+
+    /**
+     * Blog listing. Without cursor or limit this is the original response, a JSON array of every
+     * blog with its content, so existing clients keep working. With either one it is a page of
+     * content-free summaries, {items, nextCursor, hasMore}; pass nextCursor back as cursor for
+     * the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<BlogResponse>> getAllBlogs() {
-        return ResponseEntity.ok(blogService.getAllBlogs());
+    public ResponseEntity<?> getAllBlogs(@RequestParam(required = false) String category,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            return ResponseEntity.ok(blogService.getAllBlogs(category));
+        }
+        try {
+            return ResponseEntity.ok(blogService.getBlogPage(category, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
     @GetMapping("/{slug}")
@@ -31,6 +59,36 @@ public class BlogController {
         return ResponseEntity.ok(blogService.getBlogBySlug(slug));
     }
 
+    /**
+     * Sanitized article HTML, gzip-encoded when the client accepts it. ETag and Last-Modified
+     * let browsers and proxies revalidate with a 304 instead of downloading the article again.
+     */
+    @GetMapping("/{slug}/html")
+    public ResponseEntity<?> getBlogHtml(@PathVariable String slug,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        BlogHtmlCache.RenderedBlog rendered;
+        try {
+            rendered = blogService.getRenderedBlog(slug);
+        } catch (RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .eTag(gzip ? rendered.gzipEtag() : rendered.etag())
+                .lastModified(rendered.lastModified());
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(rendered.gzip());
+        }
+        return response.body(rendered.html());
+    }
+
     @PostMapping
     public ResponseEntity<BlogResponse> createBlog(@Valid @RequestBody BlogRequest request) {
         return ResponseEntity.status(HttpStatus.CREATED).body(blogService.createBlog(request));
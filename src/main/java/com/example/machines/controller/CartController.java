@@ -5,6 +5,7 @@ import com.example.machines.dto.CartResponse;
 import com.example.machines.entity.Cart;
 import com.example.machines.entity.CartItem;
 import com.example.machines.service.CartService;
+import com.example.machines.util.ImageVariants;
 import com.example.machines.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -167,7 +168,7 @@ public class CartController {
         }
     }
 
-    private CartResponse convertToResponse(Cart cart) {
+    CartResponse convertToResponse(Cart cart) {
         List<CartItemResponse> items = cart.getItems().stream()
                 .map(this::convertItemToResponse)
                 .collect(Collectors.toList());
@@ -194,7 +195,8 @@ public class CartController {
                 item.getQuantity(),
                 item.getPrice(),
                 item.getOriginalPrice(),
-                item.getProduct().getInStock()
+                item.getProduct().getInStock(),
+                ImageVariants.thumbnail(item.getProductImage())
         );
     }
 }
@@ -0,0 +1,132 @@
+package com.example.machines.controller;
+
+import com.example.machines.service.RealtimeEvent;
+import com.example.machines.service.SseEmitterRegistry;
+import com.example.machines.service.StreamTicketService;
+import com.example.machines.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server-sent events: the same notifications as the STOMP destinations, over a plain
+ * text/event-stream response. Event names follow the destinations: price-updates,
+ * price-updates.batch, order-updates, user-updates, upload-jobs and, for a client that missed
+ * more than can be replayed, resync.
+ *
+ * Anonymous streams get the public broadcasts. An authenticated stream also gets that user's
+ * events, and an admin's gets the admin broadcasts. Clients that can set headers send the JWT
+ * in the Authorization header. Browsers' EventSource cannot, so a browser first exchanges its
+ * JWT for a ticket with POST /api/events/ticket, then opens the stream with ?ticket=. The
+ * ticket stays good for reconnects to that stream until the JWT expires, so EventSource's
+ * automatic reconnect resumes from Last-Event-ID. A JWT is not accepted as a URL parameter,
+ * where logs would keep it.
+ *
+ * Single node only: with app.websocket.broker=relay the stream is refused with 503, since one
+ * node sees only the events it publishes itself and numbers them on its own. Use STOMP there.
+ * EventSource does not reconnect after a 503.
+ */
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "*")
+public class EventStreamController {
+
+    @Autowired
+    private SseEmitterRegistry sseEmitterRegistry;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestParam(required = false) String ticket,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        if (!sseEmitterRegistry.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        String user = null;
+        boolean admin = false;
+        if (ticket != null) {
+            StreamTicketService.Ticket redeemed = streamTicketService.redeem(ticket);
+            // EventSource does not retry a 401, which is what a bad or expired ticket should get
+            if (redeemed == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            user = redeemed.user();
+            admin = redeemed.admin();
+        } else if (authorization != null && !authorization.isBlank()) {
+            Claims claims = verify(authorization);
+            if (claims == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            user = RealtimeEvent.principalName(claims.get("role"), ((Number) claims.get("userId")).longValue());
+            admin = "ADMIN".equals(claims.get("role"));
+        }
+        Long resumeAfter = parseEventId(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        return ResponseEntity.ok()
+                // Keeps buffering proxies such as nginx from holding events back
+                .header("X-Accel-Buffering", "no")
+                .body(sseEmitterRegistry.subscribe(user, admin, resumeAfter));
+    }
+
+    /**
+     * Exchanges the JWT in the Authorization header for a stream ticket, to be passed as
+     * ?ticket= within ticket-ttl-ms. The ticket then reopens that user's stream until the JWT
+     * expires, so a client gets a new ticket when it logs in again.
+     */
+    @PostMapping("/ticket")
+    public ResponseEntity<?> ticket(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        Claims claims = authorization == null ? null : verify(authorization);
+        if (claims == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "A valid Bearer token is required");
+            error.put("success", "false");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        }
+        String user = RealtimeEvent.principalName(claims.get("role"), ((Number) claims.get("userId")).longValue());
+        Map<String, Object> response = new HashMap<>();
+        response.put("ticket", streamTicketService.issue(user, "ADMIN".equals(claims.get("role")),
+                claims.getExpiration().getTime()));
+        response.put("expiresInMs", streamTicketService.getTtlMs());
+        return ResponseEntity.ok(response);
+    }
+
+    // The token's claims, or null unless it is a valid Bearer token with a userId
+    private Claims verify(String authorization) {
+        if (!authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            Claims claims = jwtUtil.getClaims(authorization.substring(7).trim());
+            return claims.get("userId") instanceof Number ? claims : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token invalid or expired
+            return null;
+        }
+    }
+
+    private static Long parseEventId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            // Not an id this server issued; start from now
+            return null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.machines.controller;
 import com.example.machines.dto.FavoriteResponse;
 import com.example.machines.entity.Favorite;
 import com.example.machines.service.FavoriteService;
+import com.example.machines.util.ImageVariants;
 import com.example.machines.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -66,7 +67,8 @@ public class FavoriteController {
                             fav.getPrice(),
                             fav.getOriginalPrice(),
                             fav.getProductImage(),
-                            fav.getProduct().getInStock() != null ? fav.getProduct().getInStock() : true
+                            fav.getProduct().getInStock() != null ? fav.getProduct().getInStock() : true,
+                            ImageVariants.listing(fav.getProductImage())
                     ))
                     .collect(Collectors.toList());
             return ResponseEntity.ok(Map.of("success", true, "data", favoriteResponses));
@@ -95,7 +97,8 @@ public class FavoriteController {
                     favorite.getPrice(),
                     favorite.getOriginalPrice(),
                     favorite.getProductImage(),
-                    favorite.getProduct().getInStock() != null ? favorite.getProduct().getInStock() : true
+                    favorite.getProduct().getInStock() != null ? favorite.getProduct().getInStock() : true,
+                    ImageVariants.listing(favorite.getProductImage())
             );
             return ResponseEntity.ok(Map.of("success", true, "data", response, "message", "Favorite added successfully"));
         } catch (Exception e) {
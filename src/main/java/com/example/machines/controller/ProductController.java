@@ -1,16 +1,35 @@
 package com.example.machines.controller;
 
+import com.example.machines.cache.JsonFragments;
+import com.example.machines.dto.BulkPriceRequest;
+import com.example.machines.dto.ImageUploadJob;
 import com.example.machines.dto.ProductRequest;
 import com.example.machines.dto.ProductResponse;
+import com.example.machines.dto.ProductSuggestion;
+import com.example.machines.service.BulkPriceService;
 import com.example.machines.service.CloudinaryService;
+import com.example.machines.service.ImageUploadService;
+import com.example.machines.service.ProductImportService;
+import com.example.machines.service.ProductSearchIndex;
 import com.example.machines.service.ProductService;
+import com.example.machines.service.ProductSuggestIndex;
+import com.example.machines.service.ProductSlugIndex;
+import com.example.machines.util.ImageVariants;
+import com.example.machines.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,36 +45,231 @@ public class ProductController {
     @Autowired
     private CloudinaryService cloudinaryService;
 
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private BulkPriceService bulkPriceService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private boolean isAdminFromToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            try {
+                String email = jwtUtil.extractUsername(token);
+                if (email != null && jwtUtil.validateToken(token, email)) {
+                    io.jsonwebtoken.Claims claims = jwtUtil.getClaims(token);
+                    String role = (String) claims.get("role");
+                    return "ADMIN".equals(role);
+                }
+            } catch (Exception e) {
+                // Token invalid or expired
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> adminRequired() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Admin access required");
+        error.put("success", "false");
+        return error;
+    }
+
+    /**
+     * Public listing; optional brand, price, inStock, isOnSale, isNew and spec.* parameters
+     * narrow it, e.g. ?inStock=true&amp;isOnSale=true
+     */
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<?> getAllProducts(@RequestParam MultiValueMap<String, String> params) {
+        try {
+            return ResponseEntity.ok(productService.getProductsAsJson(params));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
     @GetMapping("/admin")
-    public ResponseEntity<List<ProductResponse>> getAllProductsForAdmin() {
-        return ResponseEntity.ok(productService.getAllProductsForAdmin());
+    public ResponseEntity<JsonFragments> getAllProductsForAdmin() {
+        return ResponseEntity.ok(productService.getAllProductsForAdminAsJson());
+    }
+
+    /**
+     * Bulk create-or-update by brandSlug. The body is CSV with a header row of ProductRequest
+     * field names (list fields separated by '|') or NDJSON with one ProductRequest per line,
+     * and is read as a stream. Invalid rows are reported and skipped. Admin only.
+     */
+    @PostMapping("/admin/import")
+    public ResponseEntity<?> importProducts(@RequestParam(required = false) String format,
+                                            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                            HttpServletRequest request) {
+        if (!isAdminFromToken(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(adminRequired());
+        }
+        try {
+            ProductImportService.Format importFormat = ProductImportService.Format.resolve(format, contentType);
+            return ResponseEntity.ok(productImportService.importProducts(importFormat, request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.badRequest().body(error);
+        } catch (IOException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to read import: " + e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    /**
+     * Reprices the products selected by filters and/or ids by a percentage or amount, or
+     * schedules the new price for a window. Previews the changes unless dryRun is false.
+     * Admin only, previews included.
+     */
+    @PostMapping("/admin/prices/bulk")
+    public ResponseEntity<?> bulkUpdatePrices(@RequestBody BulkPriceRequest request, HttpServletRequest httpRequest) {
+        if (!isAdminFromToken(httpRequest)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(adminRequired());
+        }
+        try {
+            return ResponseEntity.ok(bulkPriceService.apply(request));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Streams every product in the import columns, as CSV (default) or NDJSON. Admin only, as
+     * it includes inactive products and scheduled prices.
+     */
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "csv") String format,
+                                                                HttpServletRequest request) {
+        // Declared as StreamingResponseBody so the export streams; the error body is written the same way
+        if (!isAdminFromToken(request)) {
+            Map<String, String> error = adminRequired();
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        ProductImportService.Format exportFormat;
+        try {
+            exportFormat = ProductImportService.Format.resolve(format, null);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        StreamingResponseBody body = out -> productImportService.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    /**
+     * Full-text product search with typo tolerance and brand / price-bucket facets
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String q,
+                                            @RequestParam(required = false) String brand,
+                                            @RequestParam(required = false) String price,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) Integer offset) {
+        try {
+            return ResponseEntity.ok(productSearchIndex.search(q, brand, price, limit, offset));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Typeahead suggestions for the search box
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggestProducts(@RequestParam(required = false) String q,
+                                                                   @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productSuggestIndex.suggest(q, limit));
+    }
+
+    /**
+     * Faceted filtering by brand, price bucket and specifications, e.g.
+     * ?brand=Usha&amp;spec.type=Computerised&amp;spec.motor.min=90
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterProducts(@RequestParam MultiValueMap<String, String> params,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) Integer offset) {
+        try {
+            return ResponseEntity.ok(productService.filterProducts(params, limit, offset));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("success", "false");
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> getProductById(@PathVariable String id) {
-        // Try to parse as Long (ID), if fails, treat as slug
-        try {
-            Long productId = Long.parseLong(id);
-            return ResponseEntity.ok(productService.getProductById(productId));
-        } catch (NumberFormatException e) {
-            // Treat as slug
-            return ResponseEntity.ok(productService.getProductBySlug(id));
+        // All-digit path segments are IDs, anything else is a slug
+        if (ProductSlugIndex.isNumericId(id)) {
+            return ResponseEntity.ok(productService.getProductById(Long.parseLong(id)));
         }
+        return ResponseEntity.ok(productService.getProductBySlug(id));
     }
 
     @PostMapping
-    public ResponseEntity<ProductResponse> createProduct(@Valid @RequestBody ProductRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(productService.createProduct(request));
+    public ResponseEntity<?> createProduct(@Valid @RequestBody ProductRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(productService.createProduct(request));
+        } catch (IllegalArgumentException e) {
+            return slugConflict(e);
+        }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ProductResponse> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductRequest request) {
-        return ResponseEntity.ok(productService.updateProduct(id, request));
+    public ResponseEntity<?> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductRequest request) {
+        try {
+            return ResponseEntity.ok(productService.updateProduct(id, request));
+        } catch (IllegalArgumentException e) {
+            return slugConflict(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, String>> slugConflict(IllegalArgumentException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        error.put("success", "false");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
 
     @DeleteMapping("/{id}")
@@ -85,6 +299,9 @@ public class ProductController {
             String imageUrl = cloudinaryService.uploadImage(file);
             Map<String, String> response = new HashMap<>();
             response.put("url", imageUrl);
+            response.put("thumbnailUrl", ImageVariants.thumbnail(imageUrl));
+            response.put("listingImageUrl", ImageVariants.listing(imageUrl));
+            response.put("heroImageUrl", ImageVariants.hero(imageUrl));
             response.put("message", "Image uploaded successfully");
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -93,5 +310,31 @@ public class ProductController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
-}
 
+    @PostMapping("/upload/async")
+    public ResponseEntity<Map<String, Object>> uploadImagesAsync(@RequestParam("files") List<MultipartFile> files) {
+        try {
+            List<ImageUploadJob> jobs = imageUploadService.submit(files);
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobs", jobs);
+            response.put("message", "Images queued for upload");
+            boolean allRejected = !jobs.isEmpty() && jobs.stream().allMatch(job -> "FAILED".equals(job.getStatus()));
+            return ResponseEntity.status(allRejected ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.ACCEPTED).body(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Failed to queue images: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @GetMapping("/upload/jobs/{jobId}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(imageUploadService.getJob(jobId));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.machines.controller;
 
+import com.example.machines.cache.JsonFragments;
 import com.example.machines.dto.ReviewRequest;
 import com.example.machines.dto.ReviewResponse;
 import com.example.machines.service.ReviewService;
@@ -8,8 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/products/{productId}/reviews")
 @CrossOrigin(origins = "*")
@@ -19,8 +18,8 @@ public class ReviewController {
     private ReviewService reviewService;
 
     @GetMapping
-    public ResponseEntity<List<ReviewResponse>> getReviews(@PathVariable Long productId) {
-        return ResponseEntity.ok(reviewService.getReviewsForProduct(productId));
+    public ResponseEntity<JsonFragments> getReviews(@PathVariable Long productId) {
+        return ResponseEntity.ok(reviewService.getReviewsForProductAsJson(productId));
     }
 
     @PostMapping
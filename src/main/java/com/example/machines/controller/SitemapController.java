@@ -0,0 +1,54 @@
+package com.example.machines.controller;
+
+import com.example.machines.service.SitemapService;
+import com.example.machines.util.AcceptEncoding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "*")
+public class SitemapController {
+
+    @Autowired
+    private SitemapService sitemapService;
+
+    /**
+     * Sitemap index listing the product and blog chunk files
+     */
+    @GetMapping("/sitemap.xml")
+    public ResponseEntity<byte[]> getSitemapIndex(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return serve(sitemapService.getIndex(), acceptEncoding);
+    }
+
+    @GetMapping("/sitemaps/{name}.xml")
+    public ResponseEntity<byte[]> getSitemapChunk(@PathVariable String name,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SitemapService.RenderedSitemap sitemap = sitemapService.getChunk(name);
+        if (sitemap == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(sitemap, acceptEncoding);
+    }
+
+    private ResponseEntity<byte[]> serve(SitemapService.RenderedSitemap sitemap, String acceptEncoding) {
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_XML)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .eTag(gzip ? sitemap.gzipEtag() : sitemap.etag())
+                .lastModified(sitemap.lastModified());
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(sitemap.gzip());
+        }
+        return response.body(sitemap.xml());
+    }
+}
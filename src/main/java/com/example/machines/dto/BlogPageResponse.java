@@ -0,0 +1,16 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlogPageResponse {
+    private List<BlogSummaryResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
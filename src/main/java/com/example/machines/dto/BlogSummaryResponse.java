@@ -0,0 +1,21 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlogSummaryResponse {
+    private Long id;
+    private String title;
+    private String slug;
+    private String excerpt;
+    private String imageUrl;
+    private String category;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,21 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPriceChange {
+    private Long productId;
+    private String title;
+    // The price customers pay before and after
+    private BigDecimal oldPrice;
+    private BigDecimal newPrice;
+    // The regular price before and after; differs from the price while a schedule is active
+    private BigDecimal oldRegularPrice;
+    private BigDecimal newRegularPrice;
+}
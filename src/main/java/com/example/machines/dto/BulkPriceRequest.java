@@ -0,0 +1,30 @@
+package com.example.machines.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BulkPriceRequest {
+    // Products to reprice: filter parameters as on /api/products/filter (brand, price, inStock,
+    // isOnSale, isNew, isActive, spec.*), explicit ids, or both (intersected)
+    private Map<String, List<String>> filters;
+    private List<Long> ids;
+
+    // "PERCENT" (value -10 is 10% off) or "AMOUNT" (value -500 takes 500 off)
+    private String adjustment;
+    private BigDecimal value;
+
+    // When both are set the change becomes a scheduled price for this window instead of a
+    // change to the regular price
+    private LocalDateTime priceStartDate;
+    private LocalDateTime priceEndDate;
+
+    // Preview only unless explicitly false
+    private Boolean dryRun = true;
+    // Changes listed in the response; counts always cover the whole set
+    private Integer previewLimit;
+}
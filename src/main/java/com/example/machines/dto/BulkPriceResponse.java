@@ -0,0 +1,20 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPriceResponse {
+    private boolean dryRun;
+    private long matched;
+    // Products whose price or schedule is (or would be) written
+    private long updated;
+    // The first changes, up to the preview limit
+    private List<BulkPriceChange> changes;
+    private long elapsedMs;
+}
@@ -20,5 +20,6 @@ public class CartItemResponse {
     private BigDecimal price;
     private BigDecimal originalPrice;
     private Boolean inStock;
+    private String thumbnailUrl;
 }
 
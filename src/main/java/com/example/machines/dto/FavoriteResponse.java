@@ -18,5 +18,6 @@ public class FavoriteResponse {
     private BigDecimal originalPrice;
     private String image;
     private boolean inStock;
+    private String listingImageUrl;
 }
 
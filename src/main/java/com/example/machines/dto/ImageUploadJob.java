@@ -0,0 +1,23 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUploadJob {
+    private String jobId;
+    private String fileName;
+    private long size;
+    private String status; // "QUEUED", "UPLOADING", "COMPLETED", "FAILED"
+    private String url;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+    private Map<String, String> variants;
+}
@@ -0,0 +1,18 @@
+package com.example.machines.dto;
+
+import com.example.machines.cache.JsonFragments;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterResponse {
+    private long total;
+    private JsonFragments products;
+    // Per facet ("brand", "price", "spec.motor", ...) the count of each value, ignoring the facet's own filter
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,15 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportError {
+    // CSV line the record starts on, or NDJSON line number
+    private long row;
+    private String brandSlug;
+    private String message;
+}
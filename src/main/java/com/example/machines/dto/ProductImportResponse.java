@@ -0,0 +1,21 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResponse {
+    private String format;
+    private long rowsRead;
+    private long created;
+    private long updated;
+    private long failed;
+    // The first failed rows; failed has the full count
+    private List<ProductImportError> errors;
+    private long elapsedMs;
+}
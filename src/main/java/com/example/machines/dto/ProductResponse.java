@@ -37,5 +37,9 @@ public class ProductResponse {
     private String specificationsJson;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private String thumbnailUrl;
+    private String listingImageUrl;
+    private String heroImageUrl;
+    private List<String> galleryThumbnailUrls;
 }
 
@@ -0,0 +1,25 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchHit {
+    private Long id;
+    private String title;
+    private String brandName;
+    private String brandSlug;
+    private BigDecimal price;
+    private BigDecimal originalPrice;
+    private String thumbnailUrl;
+    private BigDecimal rating;
+    private Integer reviewCount;
+    private Boolean inStock;
+    private Boolean isOnSale;
+    private float score;
+}
@@ -0,0 +1,20 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResponse {
+    private String query;
+    private long total;
+    private List<ProductSearchHit> hits;
+    // Facet counts ignore the facet's own filter, so every option shows how many results it would give
+    private Map<String, Long> brandFacets;
+    private Map<String, Long> priceFacets;
+}
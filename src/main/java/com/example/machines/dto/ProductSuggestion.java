@@ -0,0 +1,21 @@
+package com.example.machines.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestion {
+    // "brand" or "product"
+    private String type;
+    private String text;
+    // Product suggestions only
+    private Long productId;
+    private String brandSlug;
+    private BigDecimal rating;
+    private Integer reviewCount;
+}
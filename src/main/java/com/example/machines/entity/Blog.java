@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "blogs")
+@Table(name = "blogs", indexes = {
+        @Index(name = "idx_blogs_created_at", columnList = "created_at"),
+        @Index(name = "idx_blogs_category_created", columnList = "category, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
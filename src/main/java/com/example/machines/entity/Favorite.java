@@ -12,6 +12,9 @@ import java.time.LocalDateTime;
     name = "favorites",
     uniqueConstraints = {
         @UniqueConstraint(columnNames = {"user_id", "product_id"})
+    },
+    indexes = {
+        @Index(name = "idx_favorites_product_id", columnList = "product_id")
     }
 )
 @Data
@@ -10,7 +10,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "uk_products_brand_slug", columnList = "brand_slug", unique = true),
+        @Index(name = "idx_products_price_schedule", columnList = "price_start_date, price_end_date, scheduled_price")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -7,7 +7,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_reset_token", columnList = "reset_token")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
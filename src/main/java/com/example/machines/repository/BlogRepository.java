@@ -1,15 +1,51 @@
 package com.example.machines.repository;
 
+import com.example.machines.dto.BlogSummaryResponse;
 import com.example.machines.entity.Blog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BlogRepository extends JpaRepository<Blog, Long> {
     Optional<Blog> findBySlug(String slug);
+
+    // Unpaged listing with full content, for clients that send neither cursor nor limit
     List<Blog> findAllByOrderByCreatedAtDesc();
-}
 
+    List<Blog> findByCategoryOrderByCreatedAtDesc(String category);
+
+    // Sitemap rows: id, slug, updatedAt, without loading the article content
+    @Query("SELECT b.id, b.slug, b.updatedAt FROM Blog b")
+    List<Object[]> findSitemapEntries();
+
+    @Query("SELECT b.id, b.slug, b.updatedAt FROM Blog b WHERE b.id = :id")
+    List<Object[]> findSitemapEntry(@Param("id") Long id);
+
+    // Listing queries select everything except the LONGTEXT content and page by (createdAt, id)
+    @Query("SELECT new com.example.machines.dto.BlogSummaryResponse(b.id, b.title, b.slug, b.excerpt, b.imageUrl, b.category, b.createdAt, b.updatedAt) " +
+           "FROM Blog b ORDER BY b.createdAt DESC, b.id DESC")
+    List<BlogSummaryResponse> findSummaries(Pageable pageable);
+
+    @Query("SELECT new com.example.machines.dto.BlogSummaryResponse(b.id, b.title, b.slug, b.excerpt, b.imageUrl, b.category, b.createdAt, b.updatedAt) " +
+           "FROM Blog b WHERE b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BlogSummaryResponse> findSummariesBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT new com.example.machines.dto.BlogSummaryResponse(b.id, b.title, b.slug, b.excerpt, b.imageUrl, b.category, b.createdAt, b.updatedAt) " +
+           "FROM Blog b WHERE b.category = :category ORDER BY b.createdAt DESC, b.id DESC")
+    List<BlogSummaryResponse> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+    @Query("SELECT new com.example.machines.dto.BlogSummaryResponse(b.id, b.title, b.slug, b.excerpt, b.imageUrl, b.category, b.createdAt, b.updatedAt) " +
+           "FROM Blog b WHERE b.category = :category " +
+           "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BlogSummaryResponse> findSummariesByCategoryBefore(@Param("category") String category, @Param("createdAt") LocalDateTime createdAt,
+                                                            @Param("id") Long id, Pageable pageable);
+}
@@ -2,6 +2,7 @@ package com.example.machines.repository;
 
 import com.example.machines.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,5 +15,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     
     @Query("SELECT ci FROM CartItem ci WHERE ci.product.id = :productId")
     List<CartItem> findByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.product.id = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
 }
 
@@ -2,9 +2,17 @@ package com.example.machines.repository;
 
 import com.example.machines.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
-}
 
+    boolean existsByProductId(Long productId);
+
+    @Modifying
+    @Query("DELETE FROM OrderItem oi WHERE oi.product.id = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
@@ -1,9 +1,18 @@
 package com.example.machines.repository;
 
 import com.example.machines.entity.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,5 +21,94 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByInStockTrue();
     java.util.Optional<Product> findByBrandSlug(String brandSlug);
     List<Product> findByScheduledPriceIsNotNullAndPriceStartDateIsNotNullAndPriceEndDateIsNotNull();
-}
 
+    // Oldest product first, so legacy duplicate slugs keep resolving to the same product
+    @Query("SELECT p.id FROM Product p WHERE p.brandSlug = :slug ORDER BY p.id")
+    List<Long> findIdsByBrandSlug(@Param("slug") String slug);
+
+    @Query("SELECT p.id, p.brandSlug FROM Product p WHERE p.brandSlug IS NOT NULL ORDER BY p.id DESC")
+    List<Object[]> findAllSlugs();
+
+    // Sitemap rows: id, brandSlug, updatedAt of active products
+    @Query("SELECT p.id, p.brandSlug, p.updatedAt FROM Product p WHERE p.isActive = true")
+    List<Object[]> findSitemapEntries();
+
+    @Query("SELECT p.id, p.brandSlug, p.updatedAt FROM Product p WHERE p.id = :id AND p.isActive = true")
+    List<Object[]> findSitemapEntry(@Param("id") Long id);
+
+    // Suggestion rows: id, title, brandName, brandSlug, rating, reviewCount of active products
+    @Query("SELECT p.id, p.title, p.brandName, p.brandSlug, p.rating, p.reviewCount FROM Product p WHERE p.isActive = true")
+    List<Object[]> findSuggestRows();
+
+    @Query("SELECT p.id, p.title, p.brandName, p.brandSlug, p.rating, p.reviewCount FROM Product p WHERE p.id = :id AND p.isActive = true")
+    List<Object[]> findSuggestRow(@Param("id") Long id);
+
+    // Filter rows: id, brandName, price, specificationsJson, isActive, inStock, isOnSale, isNew of every product
+    @Query("SELECT p.id, p.brandName, p.price, p.specificationsJson, p.isActive, p.inStock, p.isOnSale, p.isNew FROM Product p")
+    List<Object[]> findFilterRows();
+
+    @Query("SELECT p.id, p.brandName, p.price, p.specificationsJson, p.isActive, p.inStock, p.isOnSale, p.isNew FROM Product p WHERE p.id = :id")
+    List<Object[]> findFilterRow(@Param("id") Long id);
+
+    // Import upserts: the products currently holding any of the slugs
+    List<Product> findByBrandSlugIn(Collection<String> brandSlugs);
+
+    // Export pages in id order, with the element collections read for a whole page at once
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT p.id, g FROM Product p JOIN p.galleryImages g WHERE p.id IN :ids")
+    List<Object[]> findGalleryImages(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id, h FROM Product p JOIN p.highlights h WHERE p.id IN :ids")
+    List<Object[]> findHighlights(@Param("ids") Collection<Long> ids);
+
+    // Bulk pricing rows: id, title, price, scheduledPrice, originalPriceBeforeSchedule
+    @Query("SELECT p.id, p.title, p.price, p.scheduledPrice, p.originalPriceBeforeSchedule FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findPriceRows(@Param("ids") Collection<Long> ids);
+
+    // As findPriceRows, locking the rows until the transaction ends (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id, p.title, p.price, p.scheduledPrice, p.originalPriceBeforeSchedule FROM Product p WHERE p.id IN :ids")
+    List<Object[]> lockPriceRows(@Param("ids") Collection<Long> ids);
+
+    // Regular price becomes round(price * factor + amount). While a schedule holds the price at
+    // the scheduled price only the remembered regular price moves, so the sale stays in place.
+    // Expressions read only columns assigned before them or not at all, so MySQL's left-to-right
+    // assignment gives the same result as standard SQL. The factor and amount are cast because
+    // Hibernate otherwise types them like the price column, rounding a factor of 1.125 to 1.13.
+    @Modifying
+    @Query("UPDATE Product p SET "
+            + "p.price = CASE WHEN p.scheduledPrice IS NOT NULL AND p.price = p.scheduledPrice THEN p.price "
+            + "ELSE ROUND(p.price * CAST(:factor AS BigDecimal(19, 10)) + CAST(:amount AS BigDecimal(19, 10)), 2) END, "
+            + "p.originalPriceBeforeSchedule = ROUND(p.originalPriceBeforeSchedule * CAST(:factor AS BigDecimal(19, 10)) + CAST(:amount AS BigDecimal(19, 10)), 2), "
+            + "p.updatedAt = :now WHERE p.id IN :ids")
+    int adjustPrices(@Param("ids") Collection<Long> ids, @Param("factor") BigDecimal factor,
+                     @Param("amount") BigDecimal amount, @Param("now") LocalDateTime now);
+
+    // Schedules round(regular * factor + amount) for the window, where regular is the remembered
+    // price of an existing schedule or else the current price. Active windows apply it now.
+    @Modifying
+    @Query("UPDATE Product p SET "
+            + "p.originalPriceBeforeSchedule = COALESCE(p.originalPriceBeforeSchedule, p.price), "
+            + "p.scheduledPrice = ROUND(COALESCE(p.originalPriceBeforeSchedule, p.price) * CAST(:factor AS BigDecimal(19, 10)) + CAST(:amount AS BigDecimal(19, 10)), 2), "
+            + "p.price = ROUND(COALESCE(p.originalPriceBeforeSchedule, p.price) * CAST(:factor AS BigDecimal(19, 10)) + CAST(:amount AS BigDecimal(19, 10)), 2), "
+            + "p.priceStartDate = :start, p.priceEndDate = :end, p.isOnSale = true, p.updatedAt = :now WHERE p.id IN :ids")
+    int scheduleActivePrices(@Param("ids") Collection<Long> ids, @Param("factor") BigDecimal factor,
+                             @Param("amount") BigDecimal amount, @Param("start") LocalDateTime start,
+                             @Param("end") LocalDateTime end, @Param("now") LocalDateTime now);
+
+    // Upcoming windows keep (or restore) the regular price until the schedule check applies them
+    @Modifying
+    @Query("UPDATE Product p SET "
+            + "p.originalPriceBeforeSchedule = COALESCE(p.originalPriceBeforeSchedule, p.price), "
+            + "p.scheduledPrice = ROUND(COALESCE(p.originalPriceBeforeSchedule, p.price) * CAST(:factor AS BigDecimal(19, 10)) + CAST(:amount AS BigDecimal(19, 10)), 2), "
+            + "p.price = COALESCE(p.originalPriceBeforeSchedule, p.price), "
+            + "p.priceStartDate = :start, p.priceEndDate = :end, p.isOnSale = false, p.updatedAt = :now WHERE p.id IN :ids")
+    int scheduleUpcomingPrices(@Param("ids") Collection<Long> ids, @Param("factor") BigDecimal factor,
+                               @Param("amount") BigDecimal amount, @Param("start") LocalDateTime start,
+                               @Param("end") LocalDateTime end, @Param("now") LocalDateTime now);
+
+    boolean existsByBrandSlug(String brandSlug);
+
+    boolean existsByBrandSlugAndIdNot(String brandSlug, Long id);
+}
@@ -3,6 +3,9 @@ package com.example.machines.repository;
 import com.example.machines.entity.Review;
 import com.example.machines.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,7 +15,9 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
 
     List<Review> findByProduct(Product product);
 
-    void deleteByProduct(Product product);
+    @Modifying
+    @Query("DELETE FROM Review r WHERE r.product.id = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
 }
 
 
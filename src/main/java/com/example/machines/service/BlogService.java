@@ -1,19 +1,32 @@
 package com.example.machines.service;
 
+import com.example.machines.cache.BlogHtmlCache;
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.dto.BlogPageResponse;
 import com.example.machines.dto.BlogRequest;
 import com.example.machines.dto.BlogResponse;
+import com.example.machines.dto.BlogSummaryResponse;
 import com.example.machines.entity.Blog;
 import com.example.machines.entity.NewsletterSubscriber;
 import com.example.machines.repository.BlogRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class BlogService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private BlogRepository blogRepository;
 
@@ -23,18 +36,65 @@ public class BlogService {
     @Autowired
     private EmailService emailService;
 
-    public List<BlogResponse> getAllBlogs() {
-        return blogRepository.findAllByOrderByCreatedAtDesc().stream()
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BlogHtmlCache blogHtmlCache;
+
+    /**
+     * The original unpaged listing: every blog, newest first, content included
+     */
+    public List<BlogResponse> getAllBlogs(String category) {
+        List<Blog> blogs = category != null && !category.isBlank()
+                ? blogRepository.findByCategoryOrderByCreatedAtDesc(category.trim())
+                : blogRepository.findAllByOrderByCreatedAtDesc();
+        return blogs.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * One page of the blog listing, newest first. Summaries never load the article content;
+     * the cursor is the (createdAt, id) of the last item on the previous page.
+     */
+    public BlogPageResponse getBlogPage(String category, String cursor, Integer limit) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        // Fetch one extra row to know whether another page exists
+        Pageable page = PageRequest.of(0, size + 1);
+        boolean filtered = category != null && !category.isBlank();
+
+        List<BlogSummaryResponse> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = filtered
+                    ? blogRepository.findSummariesByCategory(category.trim(), page)
+                    : blogRepository.findSummaries(page);
+        } else {
+            BlogCursor after = decodeCursor(cursor);
+            items = filtered
+                    ? blogRepository.findSummariesByCategoryBefore(category.trim(), after.createdAt(), after.id(), page)
+                    : blogRepository.findSummariesBefore(after.createdAt(), after.id(), page);
+        }
+
+        boolean hasMore = items.size() > size;
+        if (hasMore) {
+            items = items.subList(0, size);
+        }
+        String nextCursor = hasMore ? encodeCursor(items.get(items.size() - 1)) : null;
+        return new BlogPageResponse(items, nextCursor, hasMore);
+    }
+
     public BlogResponse getBlogBySlug(String slug) {
         Blog blog = blogRepository.findBySlug(slug)
                 .orElseThrow(() -> new RuntimeException("Blog not found with slug: " + slug));
         return convertToResponse(blog);
     }
 
+    public BlogHtmlCache.RenderedBlog getRenderedBlog(String slug) {
+        return blogHtmlCache.get(slug, key -> blogRepository.findBySlug(key)
+                .orElseThrow(() -> new RuntimeException("Blog not found with slug: " + key)));
+    }
+
     public BlogResponse createBlog(BlogRequest request) {
         if (blogRepository.findBySlug(request.getSlug()).isPresent()) {
             throw new RuntimeException("Blog with this slug already exists");
@@ -43,6 +103,7 @@ public class BlogService {
         Blog blog = new Blog();
         mapRequestToEntity(request, blog);
         blog = blogRepository.save(blog);
+        eventPublisher.publishEvent(ContentChangedEvent.blog(blog.getId()));
 
         // Notify subscribers
         List<NewsletterSubscriber> subscribers = newsletterService.getAllSubscribers();
@@ -65,6 +126,8 @@ public class BlogService {
 
         mapRequestToEntity(request, blog);
         blog = blogRepository.save(blog);
+        blogHtmlCache.evict(blog.getId());
+        eventPublisher.publishEvent(ContentChangedEvent.blog(blog.getId()));
         return convertToResponse(blog);
     }
 
@@ -73,6 +136,26 @@ public class BlogService {
             throw new RuntimeException("Blog not found with id: " + id);
         }
         blogRepository.deleteById(id);
+        blogHtmlCache.evict(id);
+        eventPublisher.publishEvent(ContentChangedEvent.blog(id));
+    }
+
+    private record BlogCursor(LocalDateTime createdAt, Long id) {
+    }
+
+    private String encodeCursor(BlogSummaryResponse last) {
+        String raw = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BlogCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new BlogCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     private void mapRequestToEntity(BlogRequest request, Blog blog) {
@@ -0,0 +1,309 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.dto.BulkPriceChange;
+import com.example.machines.dto.BulkPriceRequest;
+import com.example.machines.dto.BulkPriceResponse;
+import com.example.machines.dto.PriceUpdateMessage;
+import com.example.machines.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reprices a set of products at once: a percentage or fixed amount applied to the regular
+ * price, or a scheduled price for a window. Products are selected with the filter index and
+ * written with set-based UPDATEs, so the cost does not grow with a per-product load and save.
+ * Every request is previewed first: unless dryRun is false nothing is written and the response
+ * lists the changes that would be made. An applied change reads and checks its rows under a row
+ * lock in the transaction that updates them, and reports the prices as stored.
+ */
+@Service
+public class BulkPriceService {
+
+    public static final int DEFAULT_PREVIEW_LIMIT = 50;
+    public static final int MAX_PREVIEW_LIMIT = 1000;
+
+    // Ids per statement, to keep IN lists and bind parameter counts bounded
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String PERCENT = "PERCENT";
+    private static final String AMOUNT = "AMOUNT";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductFilterIndex productFilterIndex;
+
+    @Autowired
+    private PriceUpdateCoalescer priceUpdateCoalescer;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate writeTransaction;
+
+    // The changes to write, and how many of the selected ids exist
+    private record Plan(List<BulkPriceChange> changes, int matched) {
+    }
+
+    @PostConstruct
+    public void init() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Previews or applies the change. Throws IllegalArgumentException for an invalid request,
+     * including one that would take any price to zero or below.
+     */
+    public BulkPriceResponse apply(BulkPriceRequest request) {
+        long start = System.nanoTime();
+        BigDecimal[] factorAndAmount = factorAndAmount(request);
+        BigDecimal factor = factorAndAmount[0];
+        BigDecimal amount = factorAndAmount[1];
+
+        LocalDateTime windowStart = request.getPriceStartDate();
+        LocalDateTime windowEnd = request.getPriceEndDate();
+        boolean schedule = windowStart != null || windowEnd != null;
+        LocalDateTime now = ZonedDateTime.now(ZoneId.of("Asia/Kolkata")).toLocalDateTime();
+        if (schedule) {
+            if (windowStart == null || windowEnd == null) {
+                throw new IllegalArgumentException("A schedule needs both priceStartDate and priceEndDate");
+            }
+            if (!windowStart.isBefore(windowEnd)) {
+                throw new IllegalArgumentException("priceStartDate must be before priceEndDate");
+            }
+            if (!windowEnd.isAfter(now)) {
+                throw new IllegalArgumentException("priceEndDate must be in the future");
+            }
+        }
+        boolean active = schedule && !now.isBefore(windowStart);
+
+        List<Long> ids = select(request);
+        boolean dryRun = !Boolean.FALSE.equals(request.getDryRun());
+        Plan plan;
+        if (dryRun) {
+            plan = plan(ids, factor, amount, schedule, active, false);
+        } else {
+            // Rows are read locked and checked in the transaction that writes them, so a price saved
+            // in between can neither slip past the check nor be announced with a stale value
+            LocalDateTime updatedAt = LocalDateTime.now();
+            plan = writeTransaction.execute(status -> {
+                Plan locked = plan(ids, factor, amount, schedule, active, true);
+                List<Long> changedIds = locked.changes().stream().map(BulkPriceChange::getProductId).toList();
+                for (int from = 0; from < changedIds.size(); from += CHUNK_SIZE) {
+                    List<Long> chunk = changedIds.subList(from, Math.min(from + CHUNK_SIZE, changedIds.size()));
+                    if (!schedule) {
+                        productRepository.adjustPrices(chunk, factor, amount, updatedAt);
+                    } else if (active) {
+                        productRepository.scheduleActivePrices(chunk, factor, amount, windowStart, windowEnd, updatedAt);
+                    } else {
+                        productRepository.scheduleUpcomingPrices(chunk, factor, amount, windowStart, windowEnd, updatedAt);
+                    }
+                }
+                return new Plan(written(locked.changes()), locked.matched());
+            });
+
+            if (!plan.changes().isEmpty()) {
+                // One reload of the derived indexes and caches, and one coalesced frame for all subscribers
+                eventPublisher.publishEvent(ContentChangedEvent.product(null));
+                List<PriceUpdateMessage> messages = new ArrayList<>();
+                for (BulkPriceChange change : plan.changes()) {
+                    if (isChanged(change)) {
+                        messages.add(toMessage(change, schedule, active));
+                    }
+                }
+                priceUpdateCoalescer.publishAll(messages);
+                System.out.println("Bulk price change applied to " + plan.changes().size() + " of " + plan.matched() + " products"
+                        + (schedule ? " (scheduled " + windowStart + " to " + windowEnd + ")" : ""));
+            }
+        }
+        List<BulkPriceChange> changes = plan.changes();
+        int previewLimit = request.getPreviewLimit() == null ? DEFAULT_PREVIEW_LIMIT
+                : Math.max(0, Math.min(request.getPreviewLimit(), MAX_PREVIEW_LIMIT));
+        List<BulkPriceChange> preview = new ArrayList<>(changes.subList(0, Math.min(previewLimit, changes.size())));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new BulkPriceResponse(dryRun, plan.matched(), changes.size(), preview, elapsedMs);
+    }
+
+    /**
+     * Computes each selected product's change from its current row, and rejects the request if
+     * any price would reach zero or below. With lock the rows stay locked until the surrounding
+     * transaction ends.
+     */
+    private Plan plan(List<Long> ids, BigDecimal factor, BigDecimal amount, boolean schedule, boolean active, boolean lock) {
+        List<BulkPriceChange> changes = new ArrayList<>();
+        int matched = 0;
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            List<Object[]> rows = lock ? productRepository.lockPriceRows(chunk) : productRepository.findPriceRows(chunk);
+            matched += rows.size();
+            for (Object[] row : rows) {
+                BulkPriceChange change = schedule
+                        ? scheduleChange(row, factor, amount, active)
+                        : adjustChange(row, factor, amount);
+                BigDecimal lowest = change.getNewPrice().min(change.getNewRegularPrice());
+                if (schedule) {
+                    lowest = lowest.min(adjust(change.getNewRegularPrice(), factor, amount));
+                }
+                if (lowest.signum() <= 0) {
+                    throw new IllegalArgumentException("Product " + change.getProductId() + " would be priced at " + lowest
+                            + "; no prices were changed");
+                }
+                // A schedule always writes its window; a plain adjustment only rows whose price moves
+                if (schedule || isChanged(change)) {
+                    changes.add(change);
+                }
+            }
+        }
+        return new Plan(changes, matched);
+    }
+
+    /**
+     * The changes with the prices as stored by the UPDATEs, read back in the same transaction
+     */
+    private List<BulkPriceChange> written(List<BulkPriceChange> changes) {
+        Map<Long, Object[]> rows = new HashMap<>();
+        List<Long> changedIds = changes.stream().map(BulkPriceChange::getProductId).toList();
+        for (int from = 0; from < changedIds.size(); from += CHUNK_SIZE) {
+            for (Object[] row : productRepository.findPriceRows(changedIds.subList(from, Math.min(from + CHUNK_SIZE, changedIds.size())))) {
+                rows.put((Long) row[0], row);
+            }
+        }
+        List<BulkPriceChange> written = new ArrayList<>(changes.size());
+        for (BulkPriceChange change : changes) {
+            Object[] row = rows.get(change.getProductId());
+            BigDecimal price = (BigDecimal) row[2];
+            BigDecimal regular = row[4] != null ? (BigDecimal) row[4] : price;
+            written.add(new BulkPriceChange(change.getProductId(), change.getTitle(), change.getOldPrice(), price,
+                    change.getOldRegularPrice(), regular));
+        }
+        return written;
+    }
+
+    private static BigDecimal[] factorAndAmount(BulkPriceRequest request) {
+        if (request.getAdjustment() == null || request.getValue() == null) {
+            throw new IllegalArgumentException("adjustment (PERCENT or AMOUNT) and value are required");
+        }
+        String adjustment = request.getAdjustment().trim().toUpperCase(Locale.ROOT);
+        BigDecimal value = request.getValue();
+        if (PERCENT.equals(adjustment)) {
+            if (value.compareTo(BigDecimal.valueOf(-100)) <= 0) {
+                throw new IllegalArgumentException("A percentage change must be above -100, got: " + value);
+            }
+            return new BigDecimal[] {BigDecimal.ONE.add(value.movePointLeft(2)), BigDecimal.ZERO};
+        }
+        if (AMOUNT.equals(adjustment)) {
+            return new BigDecimal[] {BigDecimal.ONE, value};
+        }
+        throw new IllegalArgumentException("Unknown adjustment: " + request.getAdjustment() + ". Expected PERCENT or AMOUNT");
+    }
+
+    /**
+     * Ids of the products matching the filters and the id list, in id order
+     */
+    private List<Long> select(BulkPriceRequest request) {
+        boolean hasFilters = request.getFilters() != null && !request.getFilters().isEmpty();
+        boolean hasIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (!hasFilters && !hasIds) {
+            throw new IllegalArgumentException("Select the products with filters, ids or both");
+        }
+
+        RoaringBitmap selected = null;
+        if (hasFilters) {
+            Map<String, List<String>> params = new HashMap<>(request.getFilters());
+            // Admins may reprice inactive products too, so isActive is a filter here
+            List<String> active = params.remove(ProductFilterIndex.ACTIVE);
+            ProductFilterIndex.Criteria criteria = ProductFilterIndex.Criteria.fromParams(params);
+            if (active != null) {
+                for (String value : active) {
+                    String flag = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+                    if (!"true".equals(flag) && !"false".equals(flag)) {
+                        throw new IllegalArgumentException(ProductFilterIndex.ACTIVE + " must be true or false, got: " + value);
+                    }
+                    criteria.value(ProductFilterIndex.ACTIVE, flag);
+                }
+            }
+            // Unknown names are ignored by the listing; here they would reprice everything
+            if (criteria.isEmpty()) {
+                throw new IllegalArgumentException("No supported filter in " + request.getFilters().keySet());
+            }
+            selected = productFilterIndex.matches(criteria);
+        }
+        if (hasIds) {
+            RoaringBitmap ids = new RoaringBitmap();
+            for (Long id : request.getIds()) {
+                if (id != null && id > 0 && id <= Integer.MAX_VALUE) {
+                    ids.add(id.intValue());
+                }
+            }
+            selected = selected == null ? ids : RoaringBitmap.and(selected, ids);
+        }
+
+        List<Long> result = new ArrayList<>(selected.getCardinality());
+        selected.forEach((int id) -> result.add((long) id));
+        return result;
+    }
+
+    // Mirrors ProductRepository.adjustPrices
+    private static BulkPriceChange adjustChange(Object[] row, BigDecimal factor, BigDecimal amount) {
+        BigDecimal price = (BigDecimal) row[2];
+        BigDecimal scheduledPrice = (BigDecimal) row[3];
+        BigDecimal regular = (BigDecimal) row[4];
+        boolean held = scheduledPrice != null && price.compareTo(scheduledPrice) == 0;
+        BigDecimal newPrice = held ? price : adjust(price, factor, amount);
+        BigDecimal newRegular = regular == null ? null : adjust(regular, factor, amount);
+        return new BulkPriceChange((Long) row[0], (String) row[1], price, newPrice,
+                regular != null ? regular : price, newRegular != null ? newRegular : newPrice);
+    }
+
+    // Mirrors ProductRepository.scheduleActivePrices and scheduleUpcomingPrices
+    private static BulkPriceChange scheduleChange(Object[] row, BigDecimal factor, BigDecimal amount, boolean active) {
+        BigDecimal price = (BigDecimal) row[2];
+        BigDecimal regular = row[4] != null ? (BigDecimal) row[4] : price;
+        BigDecimal newPrice = active ? adjust(regular, factor, amount) : regular;
+        return new BulkPriceChange((Long) row[0], (String) row[1], price, newPrice, regular, regular);
+    }
+
+    // ROUND in MySQL rounds exact decimals half away from zero, as HALF_UP does
+    private static BigDecimal adjust(BigDecimal price, BigDecimal factor, BigDecimal amount) {
+        return price.multiply(factor).add(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static boolean isChanged(BulkPriceChange change) {
+        return change.getOldPrice().compareTo(change.getNewPrice()) != 0
+                || change.getOldRegularPrice().compareTo(change.getNewRegularPrice()) != 0;
+    }
+
+    private static PriceUpdateMessage toMessage(BulkPriceChange change, boolean schedule, boolean active) {
+        if (!schedule) {
+            return new PriceUpdateMessage(change.getProductId(), change.getNewPrice(), change.getNewRegularPrice(),
+                    "Price updated: Bulk price change", "PRICE_CHANGED");
+        }
+        if (active) {
+            return new PriceUpdateMessage(change.getProductId(), change.getNewPrice(), change.getNewRegularPrice(),
+                    "Price updated: Scheduled discount applied", "PRICE_CHANGED");
+        }
+        return new PriceUpdateMessage(change.getProductId(), change.getNewPrice(), change.getNewRegularPrice(),
+                "Price reverted: Schedule not started yet", "PRICE_REVERTED");
+    }
+}
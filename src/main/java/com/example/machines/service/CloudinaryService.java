@@ -1,12 +1,18 @@
 package com.example.machines.service;
 
 import com.cloudinary.Cloudinary;
+import com.cloudinary.Transformation;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.machines.util.ImageVariants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -16,15 +22,57 @@ public class CloudinaryService {
     private Cloudinary cloudinary;
 
     public String uploadImage(MultipartFile file) throws IOException {
+        Path tempFile = spoolToTempFile(file);
+        try {
+            return uploadFile(tempFile.toFile());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Uploads a file from disk. The HTTP client streams the file body, so the image is never
+     * held in memory as a whole. The thumbnail, listing and hero derivatives are generated
+     * eagerly in the background so the first storefront request does not pay for them.
+     */
+    public String uploadFile(File file) throws IOException {
         Map<String, Object> params = ObjectUtils.asMap(
             "folder", "sewing machines",
-            "resource_type", "auto"
+            "resource_type", "auto",
+            "eager", eagerTransformations(),
+            "eager_async", true
         );
 
-        Map<?, ?> uploadResult = cloudinary.uploader().upload(file.getBytes(), params);
+        Map<?, ?> uploadResult = cloudinary.uploader().upload(file, params);
         return (String) uploadResult.get("secure_url");
     }
 
+    @SuppressWarnings("rawtypes")
+    private List<Transformation> eagerTransformations() {
+        return ImageVariants.eagerTransformations().stream()
+                .map(transformation -> (Transformation) new Transformation().rawTransformation(transformation))
+                .toList();
+    }
+
+    /**
+     * Moves the multipart upload into a temp file owned by the caller. Multipart parts are
+     * already on disk, so this is a rename or stream copy rather than a read into a byte[].
+     */
+    public Path spoolToTempFile(MultipartFile file) throws IOException {
+        String originalName = file.getOriginalFilename();
+        String suffix = originalName != null && originalName.lastIndexOf('.') > 0
+                ? originalName.substring(originalName.lastIndexOf('.'))
+                : ".upload";
+        Path tempFile = Files.createTempFile("image-upload-", suffix);
+        try {
+            file.transferTo(tempFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
     public void deleteImage(String imageUrl) throws IOException {
         if (imageUrl != null && !imageUrl.isEmpty()) {
             // Extract public_id from URL
@@ -55,4 +103,3 @@ public class CloudinaryService {
         return null;
     }
 }
-
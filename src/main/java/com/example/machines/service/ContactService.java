@@ -59,7 +59,7 @@ public class ContactService {
         );
     }
 
-    private int countWords(String text) {
+    int countWords(String text) {
         if (text == null || text.trim().isEmpty()) {
             return 0;
         }
@@ -68,7 +68,7 @@ public class ContactService {
         return words.length;
     }
 
-    private boolean isValidEmail(String email) {
+    boolean isValidEmail(String email) {
         if (email == null || email.trim().isEmpty()) {
             return false;
         }
@@ -114,7 +114,7 @@ public class ContactService {
         return true;
     }
 
-    private boolean isValidPhone(String phone) {
+    boolean isValidPhone(String phone) {
         if (phone == null || phone.trim().isEmpty()) {
             return false;
         }
@@ -325,7 +325,7 @@ public class GoogleFeedService {
         return currentPrice;
     }
 
-    private String escapeXml(String input) {
+    String escapeXml(String input) {
         if (input == null) {
             return "";
         }
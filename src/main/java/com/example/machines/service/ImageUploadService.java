@@ -0,0 +1,163 @@
+package com.example.machines.service;
+
+import com.example.machines.dto.ImageUploadJob;
+import com.example.machines.util.ImageVariants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs Cloudinary uploads off the request thread. Each file is spooled to a temp file,
+ * queued on a bounded worker pool and tracked as a job that can be polled by ID or
+ * followed on /topic/upload-jobs.
+ *
+ * A job is never modified once it is in the jobs map: each state change puts a new copy, so
+ * a poller or the notification serializers always see a consistent job, never COMPLETED
+ * without its url.
+ */
+@Service
+public class ImageUploadService {
+
+    @Autowired
+    private CloudinaryService cloudinaryService;
+
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Value("${app.upload.workers:4}")
+    private int workers;
+
+    @Value("${app.upload.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${app.upload.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    private final Map<String, ImageUploadJob> jobs = new ConcurrentHashMap<>();
+
+    // Created here rather than as a bean so it does not compete with the @Async executor
+    private ThreadPoolTaskExecutor uploadExecutor;
+
+    @PostConstruct
+    public void init() {
+        uploadExecutor = new ThreadPoolTaskExecutor();
+        uploadExecutor.setThreadNamePrefix("image-upload-");
+        uploadExecutor.setCorePoolSize(workers);
+        uploadExecutor.setMaxPoolSize(workers);
+        uploadExecutor.setQueueCapacity(queueCapacity);
+        uploadExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        uploadExecutor.setAwaitTerminationSeconds(30);
+        uploadExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    /**
+     * Queues every file for upload. Files that do not fit in the queue are returned as
+     * FAILED jobs so the caller can tell which ones to retry.
+     */
+    public List<ImageUploadJob> submit(List<MultipartFile> files) throws IOException {
+        List<ImageUploadJob> submitted = new ArrayList<>();
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                continue;
+            }
+            ImageUploadJob job = new ImageUploadJob(
+                    UUID.randomUUID().toString(),
+                    file.getOriginalFilename(),
+                    file.getSize(),
+                    "QUEUED",
+                    null,
+                    null,
+                    LocalDateTime.now(),
+                    null,
+                    null
+            );
+            Path tempFile = cloudinaryService.spoolToTempFile(file);
+            jobs.put(job.getJobId(), job);
+            try {
+                uploadExecutor.execute(() -> runUpload(job, tempFile));
+                submitted.add(job);
+            } catch (TaskRejectedException e) {
+                Files.deleteIfExists(tempFile);
+                submitted.add(complete(job, null, "Upload queue is full, please retry"));
+            }
+        }
+        return submitted;
+    }
+
+    public ImageUploadJob getJob(String jobId) {
+        ImageUploadJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Upload job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private void runUpload(ImageUploadJob queued, Path tempFile) {
+        ImageUploadJob job = copy(queued, "UPLOADING", null, null, null);
+        jobs.put(job.getJobId(), job);
+        try {
+            complete(job, cloudinaryService.uploadFile(tempFile.toFile()), null);
+        } catch (Exception e) {
+            System.err.println("Image upload " + job.getJobId() + " failed: " + e.getMessage());
+            complete(job, null, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                System.err.println("Failed to delete temp upload file " + tempFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private ImageUploadJob complete(ImageUploadJob job, String url, String error) {
+        ImageUploadJob completed = copy(job, error == null ? "COMPLETED" : "FAILED", url, error, LocalDateTime.now());
+        jobs.put(completed.getJobId(), completed);
+        try {
+            webSocketService.sendUploadJobUpdate(completed);
+        } catch (Exception e) {
+            System.err.println("Failed to send upload job update: " + e.getMessage());
+        }
+        return completed;
+    }
+
+    private static ImageUploadJob copy(ImageUploadJob job, String status, String url, String error, LocalDateTime completedAt) {
+        return new ImageUploadJob(
+                job.getJobId(),
+                job.getFileName(),
+                job.getSize(),
+                status,
+                url,
+                error,
+                job.getCreatedAt(),
+                completedAt,
+                url != null ? ImageVariants.forUrl(url) : null
+        );
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff));
+    }
+}
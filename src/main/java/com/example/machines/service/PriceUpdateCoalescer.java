@@ -0,0 +1,183 @@
+package com.example.machines.service;
+
+import com.example.machines.dto.PriceUpdateMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers price updates for a short window and broadcasts them as one PriceUpdateMessage[]
+ * frame on /topic/price-updates/batch. Within a window only the latest update per product is
+ * kept, so a schedule check or catalog read that re-announces the same prices costs every
+ * client one frame per window instead of one frame per product per call.
+ *
+ * STOMP clients written before the batch topic subscribe to /topic/price-updates, one
+ * PriceUpdateMessage per frame. Until they have moved to the batch topic, each flush also sends
+ * the window's updates there one by one over STOMP (app.websocket.legacy-price-topic, on by
+ * default); the per-product coalescing applies to both.
+ *
+ * While the legacy topic is on, a window costs every client one frame per product plus the
+ * batch frame, so batching only saves frames once app.websocket.legacy-price-topic is off;
+ * until then it only drops repeated updates of a product within the window.
+ *
+ * Meters: "websocket.price.updates" counts messages by stage (received, sent), and
+ * "websocket.price.frames" counts frames by result: sent (batch frames), legacy (frames sent on
+ * the legacy topic), and the net effect against one frame per received message - saved when a
+ * window sent fewer frames than that, added when it sent more. "websocket.price.publish.latency"
+ * times each sent update from when its product first entered the window.
+ */
+@Service
+public class PriceUpdateCoalescer {
+
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.websocket.price-coalesce-window-ms:250}")
+    private long windowMs;
+
+    // Migration window: also send each update on /topic/price-updates. Turn off once no client reads it
+    @Value("${app.websocket.legacy-price-topic:true}")
+    private boolean legacyTopic;
+
+    private final Object lock = new Object();
+    // Guarded by lock: the window being filled, in first-seen order, and its received count
+    private Map<Long, Pending> pending = new LinkedHashMap<>();
+    private long receivedInWindow;
+    private boolean flushScheduled;
+
+    // Created here rather than as a bean so it does not replace the @Scheduled scheduler
+    private ThreadPoolTaskScheduler flushScheduler;
+
+    private Counter received;
+    private Counter sent;
+    private Counter framesSent;
+    private Counter framesSaved;
+    private Counter framesAdded;
+    private Counter framesLegacy;
+    private Timer publishLatency;
+
+    private record Pending(PriceUpdateMessage message, long firstSeenNanos) {
+    }
+
+    @PostConstruct
+    public void init() {
+        flushScheduler = new ThreadPoolTaskScheduler();
+        flushScheduler.setPoolSize(1);
+        flushScheduler.setThreadNamePrefix("price-updates-");
+        flushScheduler.setWaitForTasksToCompleteOnShutdown(true);
+        flushScheduler.setAwaitTerminationSeconds(5);
+        flushScheduler.initialize();
+
+        received = meterRegistry.counter("websocket.price.updates", "stage", "received");
+        sent = meterRegistry.counter("websocket.price.updates", "stage", "sent");
+        framesSent = meterRegistry.counter("websocket.price.frames", "result", "sent");
+        framesSaved = meterRegistry.counter("websocket.price.frames", "result", "saved");
+        framesAdded = meterRegistry.counter("websocket.price.frames", "result", "added");
+        framesLegacy = meterRegistry.counter("websocket.price.frames", "result", "legacy");
+        publishLatency = Timer.builder("websocket.price.publish.latency")
+                .description("Time from a price update entering the coalescing window to its frame being sent")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Deliver what is buffered rather than drop it
+        flush();
+        flushScheduler.shutdown();
+    }
+
+    public void publish(PriceUpdateMessage message) {
+        publishAll(List.of(message));
+    }
+
+    /**
+     * Adds the updates to the current window, replacing any earlier update of the same product,
+     * and schedules the window's flush if this opened it
+     */
+    public void publishAll(Collection<PriceUpdateMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean openedWindow = false;
+        synchronized (lock) {
+            for (PriceUpdateMessage message : messages) {
+                Pending earlier = pending.get(message.getProductId());
+                pending.put(message.getProductId(), new Pending(message, earlier != null ? earlier.firstSeenNanos() : now));
+            }
+            receivedInWindow += messages.size();
+            if (!flushScheduled) {
+                flushScheduled = true;
+                openedWindow = true;
+            }
+        }
+        received.increment(messages.size());
+        if (openedWindow) {
+            flushScheduler.schedule(this::flush, Instant.now().plus(Duration.ofMillis(windowMs)));
+        }
+    }
+
+    void flush() {
+        Map<Long, Pending> batch;
+        long receivedCount;
+        synchronized (lock) {
+            batch = pending;
+            receivedCount = receivedInWindow;
+            pending = new LinkedHashMap<>();
+            receivedInWindow = 0;
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<PriceUpdateMessage> messages = new ArrayList<>(batch.size());
+        for (Pending entry : batch.values()) {
+            messages.add(entry.message());
+        }
+        try {
+            webSocketService.broadcastPriceUpdates(messages);
+        } catch (Exception e) {
+            System.err.println("Failed to broadcast " + messages.size() + " price updates: " + e.getMessage());
+            return;
+        }
+        long sentAt = System.nanoTime();
+        for (Pending entry : batch.values()) {
+            publishLatency.record(sentAt - entry.firstSeenNanos(), TimeUnit.NANOSECONDS);
+        }
+        sent.increment(messages.size());
+        framesSent.increment();
+
+        long legacyFrames = 0;
+        if (legacyTopic) {
+            // Send failures are logged per message by WebSocketService
+            webSocketService.broadcastLegacyPriceUpdates(messages);
+            legacyFrames = messages.size();
+            framesLegacy.increment(legacyFrames);
+        }
+        long saved = receivedCount - 1 - legacyFrames;
+        if (saved >= 0) {
+            framesSaved.increment(saved);
+        } else {
+            framesAdded.increment(-saved);
+        }
+    }
+}
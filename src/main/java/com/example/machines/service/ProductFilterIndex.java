@@ -0,0 +1,587 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.cache.ContentVersions;
+import com.example.machines.repository.ProductRepository;
+import com.example.machines.util.PriceBuckets;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.roaringbitmap.ContainerPointer;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Faceted filtering over the catalog. The isActive / inStock / isOnSale / isNew flags, brand,
+ * price bucket and every attribute of specificationsJson form a facet whose values each hold a
+ * compressed bitmap of product ids, so any combination of them is answered by bitmap operations
+ * instead of a derived query per combination, and specifications are parsed once when a
+ * product is saved rather than on every request. A
+ * filter ORs the selected values within a facet and intersects the facets. Facet counts are
+ * gathered in one pass over the matches; a facet with a filter of its own is counted over the
+ * products passing every other filter, so each option shows how many results it would give.
+ */
+@Service
+public class ProductFilterIndex {
+
+    public static final String BRAND = "brand";
+    public static final String PRICE = "price";
+    public static final String SPEC_PREFIX = "spec.";
+    public static final String ACTIVE = "isActive";
+    public static final String IN_STOCK = "inStock";
+    public static final String ON_SALE = "isOnSale";
+    public static final String NEW = "isNew";
+
+    // Flags a storefront request may filter on; isActive is always applied by the caller
+    private static final List<String> PUBLIC_FLAGS = List.of(IN_STOCK, ON_SALE, NEW);
+
+    public static final int DEFAULT_LIMIT = 24;
+    public static final int MAX_LIMIT = 100;
+
+    // "95W", "7 kg" and "120" all compare as numbers in range filters
+    private static final Pattern LEADING_NUMBER = Pattern.compile("^-?\\d+(\\.\\d+)?");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // Only parses trees, so none of the application mapper's serialization settings apply
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // facet -> normalized value -> ids of the products having it
+    private final Map<String, Map<String, FacetValue>> facets = new HashMap<>();
+
+    // The values each product is indexed under, by ordinal: a change removes the product from
+    // exactly those, and counting walks the matches once instead of intersecting every value
+    private FacetValue[][] memberships = new FacetValue[0][];
+
+    // Every value owns a counter slot; slots of removed values are reused
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int slotCount;
+
+    private final RoaringBitmap all = new RoaringBitmap();
+
+    // Bitmaps are not thread-safe: filters share the read lock, product changes take the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Held from reading a change's rows until they are applied, so an older read is never
+    // applied after a newer one; filters only wait for the write lock, not for the database
+    private final ReentrantLock patchLock = new ReentrantLock();
+
+    private static final class FacetValue {
+        private final String facet;
+        private final String key;
+        private final String label;
+        private final Double number;
+        private final int slot;
+        private final RoaringBitmap ids = new RoaringBitmap();
+
+        private FacetValue(String facet, String key, String label, Double number, int slot) {
+            this.facet = facet;
+            this.key = key;
+            this.label = label;
+            this.number = number;
+            this.slot = slot;
+        }
+    }
+
+    private record Attribute(String facet, String key, String label, Double number) {
+    }
+
+    /**
+     * Matching product ids plus, per facet, the count of every value (labels as first indexed)
+     */
+    public record FilterResult(RoaringBitmap matches, Map<String, Map<String, Long>> facets) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        patchLock.lock();
+        try {
+            replaceAll(productRepository.findFilterRows());
+        } finally {
+            patchLock.unlock();
+        }
+        System.out.println("Product filter index loaded with " + all.getCardinality() + " products and "
+                + facets.size() + " facets");
+    }
+
+    @Order(ContentVersions.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (event.getType() != ContentChangedEvent.ContentType.PRODUCT) {
+            return;
+        }
+        if (event.getId() == null) {
+            load();
+            return;
+        }
+        patchLock.lock();
+        try {
+            List<Object[]> row = productRepository.findFilterRow(event.getId());
+            List<Attribute> attributes = row.isEmpty() ? null : attributes(row.get(0));
+            lock.writeLock().lock();
+            try {
+                int ordinal = ordinal(event.getId());
+                remove(ordinal);
+                if (attributes != null) {
+                    add(ordinal, attributes);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            patchLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces every product, e.g. after a bulk load. Rows are id, brandName, price,
+     * specificationsJson, isActive, inStock, isOnSale, isNew.
+     */
+    void replaceAll(List<Object[]> rows) {
+        // Parse outside the lock; only the bitmap updates block filters
+        Map<Integer, List<Attribute>> parsed = new HashMap<>();
+        for (Object[] row : rows) {
+            parsed.put(ordinal((Long) row[0]), attributes(row));
+        }
+        lock.writeLock().lock();
+        try {
+            facets.clear();
+            memberships = new FacetValue[0][];
+            freeSlots.clear();
+            slotCount = 0;
+            all.clear();
+            parsed.forEach(this::add);
+            for (Map<String, FacetValue> values : facets.values()) {
+                for (FacetValue value : values.values()) {
+                    value.ids.runOptimize();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids matching the criteria, without facet counts
+     */
+    public RoaringBitmap matches(Criteria criteria) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = all.clone();
+            for (String facet : criteria.facets()) {
+                result.and(predicate(facet, criteria));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public FilterResult filter(Criteria criteria) {
+        lock.readLock().lock();
+        try {
+            List<String> names = new ArrayList<>(criteria.facets());
+            int k = names.size();
+            RoaringBitmap[] predicates = new RoaringBitmap[k];
+            for (int i = 0; i < k; i++) {
+                predicates[i] = predicate(names.get(i), criteria);
+            }
+
+            // prefix[i] is every product passing the first i predicates, suffix[i] those passing
+            // predicates i..k-1; together they give "all filters but one" for each facet's counts
+            RoaringBitmap[] prefix = new RoaringBitmap[k + 1];
+            prefix[0] = all;
+            for (int i = 0; i < k; i++) {
+                prefix[i + 1] = RoaringBitmap.and(prefix[i], predicates[i]);
+            }
+            RoaringBitmap[] suffix = new RoaringBitmap[k + 1];
+            for (int i = k - 1; i >= 0; i--) {
+                suffix[i] = suffix[i + 1] == null ? predicates[i] : RoaringBitmap.and(predicates[i], suffix[i + 1]);
+            }
+            RoaringBitmap matches = k == 0 ? all.clone() : prefix[k];
+
+            // One pass over the matches counts every facet that has no filter of its own
+            long[] slotCounts = new long[slotCount];
+            FacetValue[][] joined = memberships;
+            matches.forEach((IntConsumer) ordinal -> {
+                for (FacetValue value : joined[ordinal]) {
+                    slotCounts[value.slot]++;
+                }
+            });
+
+            List<String> facetNames = new ArrayList<>(facets.keySet());
+            facetNames.sort(Comparator.comparingInt(ProductFilterIndex::facetRank).thenComparing(Comparator.naturalOrder()));
+            Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+            for (String facet : facetNames) {
+                int position = names.indexOf(facet);
+                RoaringBitmap base = position < 0 ? null
+                        : suffix[position + 1] == null ? prefix[position] : RoaringBitmap.and(prefix[position], suffix[position + 1]);
+                Set<String> selected = criteria.values.getOrDefault(facet, Collections.emptySet());
+                List<FacetValue> values = new ArrayList<>(facets.get(facet).values());
+                if (PRICE.equals(facet)) {
+                    values.sort(Comparator.comparingInt(value -> PriceBuckets.LABELS.indexOf(value.label)));
+                }
+                // A dense base answers intersections by bit lookups; a sparse one is cheaper to walk
+                boolean intersect = base != null && isDense(base);
+                long[] facetCounts = base == null ? slotCounts : intersect ? null : countFacet(base, facet);
+                Map<String, Long> valueCounts = new LinkedHashMap<>();
+                for (FacetValue value : values) {
+                    long count = intersect ? RoaringBitmap.andCardinality(value.ids, base) : facetCounts[value.slot];
+                    if (count > 0 || selected.contains(value.key)) {
+                        valueCounts.put(value.label, count);
+                    }
+                }
+                if (!valueCounts.isEmpty()) {
+                    counts.put(facet, PRICE.equals(facet) ? valueCounts : byCountDescending(valueCounts));
+                }
+            }
+            return new FilterResult(matches, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts one facet's values over the products in base. Walking the products' memberships
+     * costs a few steps per product, where intersecting every value with a sparse base would
+     * merge two sorted arrays per value.
+     */
+    private long[] countFacet(RoaringBitmap base, String facet) {
+        long[] counts = new long[slotCount];
+        base.forEach((IntConsumer) ordinal -> {
+            for (FacetValue value : memberships[ordinal]) {
+                if (value.facet.equals(facet)) {
+                    counts[value.slot]++;
+                }
+            }
+        });
+        return counts;
+    }
+
+    private static boolean isDense(RoaringBitmap bitmap) {
+        for (ContainerPointer containers = bitmap.getContainerPointer(); containers.getContainer() != null; containers.advance()) {
+            if (!containers.isBitmapContainer() && !containers.isRunContainer()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ids of the page of matches starting at offset, in ascending id order
+     */
+    public static List<Long> page(RoaringBitmap matches, int offset, int limit) {
+        int cardinality = matches.getCardinality();
+        if (offset >= cardinality) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(Math.min(limit, cardinality - offset));
+        PeekableIntIterator iterator = matches.getIntIterator();
+        iterator.advanceIfNeeded(matches.select(offset));
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+        return ids;
+    }
+
+    /**
+     * Products passing one facet's filter. Callers only read the result, which may be a value's
+     * own bitmap.
+     */
+    private RoaringBitmap predicate(String facet, Criteria criteria) {
+        Map<String, FacetValue> values = facets.getOrDefault(facet, Collections.emptyMap());
+        RoaringBitmap result = null;
+        Set<String> selected = criteria.values.get(facet);
+        double[] range = criteria.ranges.get(facet);
+        if (selected != null && selected.size() == 1 && range == null) {
+            FacetValue value = values.get(selected.iterator().next());
+            return value != null ? value.ids : new RoaringBitmap();
+        }
+        if (selected != null) {
+            result = new RoaringBitmap();
+            for (String key : selected) {
+                FacetValue value = values.get(key);
+                if (value != null) {
+                    result.or(value.ids);
+                }
+            }
+        }
+        if (range != null) {
+            RoaringBitmap inRange = new RoaringBitmap();
+            for (FacetValue value : values.values()) {
+                if (value.number != null && value.number >= range[0] && value.number <= range[1]) {
+                    inRange.or(value.ids);
+                }
+            }
+            result = result == null ? inRange : RoaringBitmap.and(result, inRange);
+        }
+        return result;
+    }
+
+    private void add(int ordinal, List<Attribute> attributes) {
+        List<FacetValue> joined = new ArrayList<>(attributes.size());
+        for (Attribute attribute : attributes) {
+            FacetValue value = facets.computeIfAbsent(attribute.facet(), facet -> new HashMap<>())
+                    .computeIfAbsent(attribute.key(), key -> new FacetValue(attribute.facet(), key, attribute.label(),
+                            attribute.number(), freeSlots.isEmpty() ? slotCount++ : freeSlots.pop()));
+            if (value.ids.checkedAdd(ordinal)) {
+                joined.add(value);
+            }
+        }
+        if (ordinal >= memberships.length) {
+            memberships = Arrays.copyOf(memberships, Math.max(ordinal + 1, memberships.length * 3 / 2));
+        }
+        memberships[ordinal] = joined.toArray(new FacetValue[0]);
+        all.add(ordinal);
+    }
+
+    private void remove(int ordinal) {
+        if (ordinal >= memberships.length || memberships[ordinal] == null) {
+            return;
+        }
+        for (FacetValue value : memberships[ordinal]) {
+            value.ids.remove(ordinal);
+            if (value.ids.isEmpty()) {
+                Map<String, FacetValue> values = facets.get(value.facet);
+                values.remove(value.key);
+                if (values.isEmpty()) {
+                    facets.remove(value.facet);
+                }
+                freeSlots.push(value.slot);
+            }
+        }
+        memberships[ordinal] = null;
+        all.remove(ordinal);
+    }
+
+    private List<Attribute> attributes(Object[] row) {
+        List<Attribute> attributes = new ArrayList<>();
+        String brandName = (String) row[1];
+        if (brandName != null && !brandName.isBlank()) {
+            attributes.add(new Attribute(BRAND, normalizeValue(brandName), brandName.trim(), null));
+        }
+        String bucket = PriceBuckets.bucket((BigDecimal) row[2]);
+        attributes.add(new Attribute(PRICE, bucket, bucket, null));
+        attributes.add(flag(ACTIVE, row[4]));
+        attributes.add(flag(IN_STOCK, row[5]));
+        attributes.add(flag(ON_SALE, row[6]));
+        attributes.add(flag(NEW, row[7]));
+        String specificationsJson = (String) row[3];
+        if (specificationsJson != null && !specificationsJson.isBlank()) {
+            try {
+                collect(null, objectMapper.readTree(specificationsJson), attributes);
+            } catch (JsonProcessingException e) {
+                System.err.println("Skipping unparseable specifications of product " + row[0] + ": " + e.getOriginalMessage());
+            }
+        }
+        return attributes;
+    }
+
+    private static Attribute flag(String facet, Object value) {
+        String key = String.valueOf(Boolean.TRUE.equals(value));
+        return new Attribute(facet, key, key, null);
+    }
+
+    /**
+     * Flattens the specification object: nested objects become dotted attribute names and
+     * arrays contribute one value per element
+     */
+    private static void collect(String path, JsonNode node, List<Attribute> attributes) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String name = normalizeAttribute(field.getKey());
+                if (!name.isEmpty()) {
+                    collect(path == null ? name : path + "." + name, field.getValue(), attributes);
+                }
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                collect(path, element, attributes);
+            }
+        } else if (path != null && node.isValueNode() && !node.isNull()) {
+            String text = node.asText().trim();
+            if (!text.isEmpty()) {
+                Double number = node.isNumber() ? Double.valueOf(node.doubleValue()) : leadingNumber(text);
+                attributes.add(new Attribute(SPEC_PREFIX + path, normalizeValue(text), text, number));
+            }
+        }
+    }
+
+    private static Double leadingNumber(String text) {
+        Matcher matcher = LEADING_NUMBER.matcher(text);
+        return matcher.find() ? Double.valueOf(matcher.group()) : null;
+    }
+
+    /**
+     * Product ids double as bitmap ordinals; auto-increment keeps them dense
+     */
+    private static int ordinal(Long id) {
+        return Math.toIntExact(id);
+    }
+
+    private static int facetRank(String facet) {
+        if (BRAND.equals(facet)) {
+            return 0;
+        }
+        if (PRICE.equals(facet)) {
+            return 1;
+        }
+        return facet.startsWith(SPEC_PREFIX) ? 3 : 2;
+    }
+
+    private static Map<String, Long> byCountDescending(Map<String, Long> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Lower-cases an attribute name and joins its words with dashes: "Motor Power" is "motor-power"
+     */
+    static String normalizeAttribute(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        boolean dash = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (dash && normalized.length() > 0) {
+                    normalized.append('-');
+                }
+                normalized.append(Character.toLowerCase(c));
+                dash = false;
+            } else {
+                dash = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    static String normalizeValue(String value) {
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Selected facet values (ORed within a facet) and numeric ranges over spec attributes
+     */
+    public static final class Criteria {
+
+        private final Map<String, Set<String>> values = new LinkedHashMap<>();
+        private final Map<String, double[]> ranges = new LinkedHashMap<>();
+
+        /**
+         * Reads brand, price, inStock, isOnSale, isNew, spec.&lt;attribute&gt; and
+         * spec.&lt;attribute&gt;.min / .max request parameters; repeated parameters select several
+         * values. Other parameters, isActive included, are ignored.
+         */
+        public static Criteria fromParams(Map<String, List<String>> params) {
+            Criteria criteria = new Criteria();
+            for (Map.Entry<String, List<String>> param : params.entrySet()) {
+                String name = param.getKey();
+                for (String value : param.getValue()) {
+                    if (value == null || value.isBlank()) {
+                        continue;
+                    }
+                    if (BRAND.equals(name)) {
+                        criteria.value(BRAND, value);
+                    } else if (PRICE.equals(name)) {
+                        if (!PriceBuckets.isLabel(value.trim())) {
+                            throw new IllegalArgumentException("Unknown price bucket: " + value + ". Expected one of " + PriceBuckets.LABELS);
+                        }
+                        criteria.value(PRICE, value.trim());
+                    } else if (PUBLIC_FLAGS.contains(name)) {
+                        String flag = value.trim().toLowerCase(Locale.ROOT);
+                        if (!"true".equals(flag) && !"false".equals(flag)) {
+                            throw new IllegalArgumentException(name + " must be true or false, got: " + value);
+                        }
+                        criteria.value(name, flag);
+                    } else if (name.startsWith(SPEC_PREFIX) && (name.endsWith(".min") || name.endsWith(".max"))) {
+                        String attribute = name.substring(SPEC_PREFIX.length(), name.length() - 4);
+                        double bound;
+                        try {
+                            bound = Double.parseDouble(value.trim());
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException(name + " must be a number, got: " + value);
+                        }
+                        criteria.range(attribute, name.endsWith(".min") ? bound : null, name.endsWith(".max") ? bound : null);
+                    } else if (name.startsWith(SPEC_PREFIX)) {
+                        criteria.value(SPEC_PREFIX + normalizeAttributePath(name.substring(SPEC_PREFIX.length())), value);
+                    }
+                }
+            }
+            return criteria;
+        }
+
+        public boolean isEmpty() {
+            return values.isEmpty() && ranges.isEmpty();
+        }
+
+        private Set<String> facets() {
+            Set<String> facets = new LinkedHashSet<>(values.keySet());
+            facets.addAll(ranges.keySet());
+            return facets;
+        }
+
+        public Criteria value(String facet, String value) {
+            values.computeIfAbsent(facet, key -> new LinkedHashSet<>()).add(normalizeValue(value));
+            return this;
+        }
+
+        /**
+         * Narrows a spec attribute to values whose leading number lies within the bounds; a
+         * null bound is open
+         */
+        public Criteria range(String attribute, Double min, Double max) {
+            double[] range = ranges.computeIfAbsent(SPEC_PREFIX + normalizeAttributePath(attribute),
+                    key -> new double[] {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY});
+            if (min != null) {
+                range[0] = min;
+            }
+            if (max != null) {
+                range[1] = max;
+            }
+            return this;
+        }
+
+        private static String normalizeAttributePath(String path) {
+            StringBuilder normalized = new StringBuilder();
+            for (String part : path.split("\\.")) {
+                if (normalized.length() > 0) {
+                    normalized.append('.');
+                }
+                normalized.append(normalizeAttribute(part));
+            }
+            return normalized.toString();
+        }
+    }
+}
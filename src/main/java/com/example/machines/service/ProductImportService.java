@@ -0,0 +1,450 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.dto.ProductImportError;
+import com.example.machines.dto.ProductImportResponse;
+import com.example.machines.dto.ProductRequest;
+import com.example.machines.entity.Product;
+import com.example.machines.repository.ProductRepository;
+import com.example.machines.util.Csv;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import and export in CSV or NDJSON. Imports are streamed: records are read in
+ * batches, each batch is parsed and validated on a worker pool while the previous batch is
+ * written, and valid rows are upserted by brandSlug in one transaction per batch. Invalid rows
+ * are reported and skipped without failing the import. Exports stream the catalog in id order,
+ * a page at a time, in the same columns the import accepts.
+ */
+@Service
+public class ProductImportService {
+
+    // ProductRequest fields in column order; export adds the id in front, which import ignores
+    public static final List<String> COLUMNS = List.of(
+            "title", "description", "brandName", "brandSlug", "brandLogoUrl", "price", "originalPrice",
+            "imageUrl", "mainImageUrl", "galleryImages", "isActive", "inStock", "stockQuantity",
+            "isOnSale", "isNew", "scheduledPrice", "priceStartDate", "priceEndDate", "highlights",
+            "specificationsJson");
+
+    // CSV cells of list columns hold the elements separated by '|'
+    private static final Set<String> LIST_COLUMNS = Set.of("galleryImages", "highlights");
+    private static final String LIST_SEPARATOR = "|";
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    public enum Format {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8), "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * An explicit format parameter wins over the content type
+         */
+        public static Format resolve(String format, String contentType) {
+            if (format != null && !format.isBlank()) {
+                for (Format candidate : values()) {
+                    if (candidate.extension.equalsIgnoreCase(format.trim())) {
+                        return candidate;
+                    }
+                }
+                throw new IllegalArgumentException("Unsupported format: " + format + ". Expected csv or ndjson");
+            }
+            String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+            if (type.contains("csv")) {
+                return CSV;
+            }
+            if (type.contains("ndjson") || type.contains("jsonl")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Unsupported import content type: " + contentType
+                    + ". Send text/csv or application/x-ndjson, or pass format=csv|ndjson");
+        }
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Rows per transaction on import and per page on export
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.workers:4}")
+    private int workers;
+
+    // Created here rather than as a bean so it does not compete with the @Async executor
+    private ThreadPoolTaskExecutor importExecutor;
+
+    private record RawRow(long row, List<String> fields, String json) {
+    }
+
+    private record ParsedRow(long row, String brandSlug, ProductRequest request, String error) {
+    }
+
+    // Running totals of one import
+    private static final class Tally {
+        private long rowsRead;
+        private long created;
+        private long updated;
+        private long failed;
+        private final List<ProductImportError> errors = new ArrayList<>();
+
+        private void fail(long row, String brandSlug, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportError(row, brandSlug, message));
+            }
+        }
+    }
+
+    // Yields batches of raw rows until the input is exhausted
+    private interface RowSource {
+        List<RawRow> next(int count) throws IOException;
+    }
+
+    @PostConstruct
+    public void init() {
+        importExecutor = new ThreadPoolTaskExecutor();
+        importExecutor.setThreadNamePrefix("product-import-");
+        importExecutor.setCorePoolSize(workers);
+        importExecutor.setMaxPoolSize(workers);
+        importExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdown();
+    }
+
+    public ProductImportResponse importProducts(Format format, InputStream body) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? csvRows(reader) : ndjsonRows(reader);
+        Tally tally = new Tally();
+
+        // Batch n is parsed and validated while batch n-1 is written
+        CompletableFuture<List<ParsedRow>> pending = null;
+        try {
+            List<RawRow> batch;
+            while (!(batch = source.next(batchSize)).isEmpty()) {
+                tally.rowsRead += batch.size();
+                CompletableFuture<List<ParsedRow>> parsing = parse(batch);
+                if (pending != null) {
+                    write(pending.join(), tally);
+                }
+                pending = parsing;
+            }
+            if (pending != null) {
+                write(pending.join(), tally);
+            }
+        } finally {
+            // Also when reading or parsing fails part way: the batches written so far are committed
+            if (tally.created + tally.updated > 0) {
+                // One reload of the derived indexes instead of one patch per imported row
+                eventPublisher.publishEvent(ContentChangedEvent.product(null));
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Product import (" + format + "): " + tally.rowsRead + " rows, " + tally.created + " created, "
+                + tally.updated + " updated, " + tally.failed + " failed in " + elapsedMs + " ms");
+        return new ProductImportResponse(format.name().toLowerCase(Locale.ROOT), tally.rowsRead, tally.created,
+                tally.updated, tally.failed, tally.errors, elapsedMs);
+    }
+
+    public void export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            List<String> header = new ArrayList<>();
+            header.add("id");
+            header.addAll(COLUMNS);
+            Csv.writeRecord(writer, header);
+        }
+        long after = 0;
+        while (true) {
+            List<Product> page = productRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, batchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Long> ids = page.stream().map(Product::getId).collect(Collectors.toList());
+            Map<Long, List<String>> gallery = group(productRepository.findGalleryImages(ids));
+            Map<Long, List<String>> highlights = group(productRepository.findHighlights(ids));
+            for (Product product : page) {
+                Map<String, Object> row = exportRow(product, gallery.get(product.getId()), highlights.get(product.getId()));
+                if (format == Format.CSV) {
+                    Csv.writeRecord(writer, row.values().stream().map(ProductImportService::toCell).collect(Collectors.toList()));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+            }
+            after = ids.get(ids.size() - 1);
+        }
+        writer.flush();
+    }
+
+    private RowSource csvRows(BufferedReader reader) throws IOException {
+        Csv.RecordReader records = new Csv.RecordReader(reader);
+        List<String> header = records.readRecord();
+        if (header == null || header.stream().allMatch(String::isBlank)) {
+            throw new IllegalArgumentException("CSV import needs a header row of column names: " + COLUMNS);
+        }
+        // Spreadsheet exports often start with a byte order mark
+        header.set(0, header.get(0).replace("\uFEFF", ""));
+        List<String> columns = header.stream().map(String::trim).collect(Collectors.toList());
+        for (String column : columns) {
+            if (!COLUMNS.contains(column) && !"id".equals(column)) {
+                throw new IllegalArgumentException("Unknown CSV column: " + column + ". Expected " + COLUMNS);
+            }
+        }
+        if (!columns.contains("brandSlug")) {
+            throw new IllegalArgumentException("CSV import needs a brandSlug column to match existing products");
+        }
+        return count -> {
+            List<RawRow> rows = new ArrayList<>(count);
+            List<String> record;
+            while (rows.size() < count && (record = records.readRecord()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                Map<String, String> cells = new HashMap<>();
+                for (int i = 0; i < columns.size() && i < record.size(); i++) {
+                    cells.put(columns.get(i), record.get(i));
+                }
+                rows.add(new RawRow(records.getRecordLine(), toFieldList(cells), null));
+            }
+            return rows;
+        };
+    }
+
+    private RowSource ndjsonRows(BufferedReader reader) {
+        long[] line = {0};
+        return count -> {
+            List<RawRow> rows = new ArrayList<>(count);
+            String text;
+            while (rows.size() < count && (text = reader.readLine()) != null) {
+                line[0]++;
+                if (!text.isBlank()) {
+                    rows.add(new RawRow(line[0], null, text));
+                }
+            }
+            return rows;
+        };
+    }
+
+    /**
+     * Parses and validates the batch in slices on the worker pool, keeping row order
+     */
+    private CompletableFuture<List<ParsedRow>> parse(List<RawRow> batch) {
+        int sliceSize = Math.max(1, (batch.size() + workers - 1) / workers);
+        List<CompletableFuture<List<ParsedRow>>> slices = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += sliceSize) {
+            List<RawRow> slice = batch.subList(from, Math.min(from + sliceSize, batch.size()));
+            slices.add(CompletableFuture.supplyAsync(
+                    () -> slice.stream().map(this::parseRow).collect(Collectors.toList()), importExecutor));
+        }
+        return CompletableFuture.allOf(slices.toArray(new CompletableFuture[0]))
+                .thenApply(done -> slices.stream().flatMap(slice -> slice.join().stream()).collect(Collectors.toList()));
+    }
+
+    private ParsedRow parseRow(RawRow raw) {
+        String slugCell = raw.fields() != null ? raw.fields().get(COLUMNS.indexOf("brandSlug")) : null;
+        ProductRequest request;
+        try {
+            request = raw.json() != null
+                    ? objectMapper.readValue(raw.json(), ProductRequest.class)
+                    : objectMapper.convertValue(toValues(raw.fields()), ProductRequest.class);
+        } catch (JsonProcessingException e) {
+            return new ParsedRow(raw.row(), null, null, "Invalid JSON: " + e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            return new ParsedRow(raw.row(), slugCell, null, "Invalid value: " + firstLine(e.getMessage()));
+        }
+
+        List<String> problems = validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList());
+        if (request.getBrandSlug() == null || request.getBrandSlug().isBlank()) {
+            problems.add("brandSlug is required to match existing products");
+        } else {
+            request.setBrandSlug(request.getBrandSlug().trim());
+        }
+        String specificationsJson = request.getSpecificationsJson();
+        if (specificationsJson != null && !specificationsJson.isBlank()) {
+            try {
+                if (!objectMapper.readTree(specificationsJson).isObject()) {
+                    problems.add("specificationsJson must be a JSON object");
+                }
+            } catch (JsonProcessingException e) {
+                problems.add("specificationsJson is not valid JSON: " + e.getOriginalMessage());
+            }
+        }
+        return new ParsedRow(raw.row(), request.getBrandSlug(), request, problems.isEmpty() ? null : String.join("; ", problems));
+    }
+
+    private void write(List<ParsedRow> rows, Tally tally) {
+        List<ParsedRow> valid = new ArrayList<>(rows.size());
+        for (ParsedRow row : rows) {
+            if (row.error() != null) {
+                tally.fail(row.row(), row.brandSlug(), row.error());
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            int created = productService.upsertBySlug(valid.stream().map(ParsedRow::request).collect(Collectors.toList()));
+            tally.created += created;
+            tally.updated += valid.size() - created;
+        } catch (RuntimeException e) {
+            // The batch rolled back as a whole; later batches still run
+            System.err.println("Product import batch starting at row " + valid.get(0).row() + " failed: " + e.getMessage());
+            for (ParsedRow row : valid) {
+                tally.fail(row.row(), row.brandSlug(), "Batch not saved: " + e.getMessage());
+            }
+        }
+    }
+
+    // CSV cells in COLUMNS order, so rows carry no per-row column map
+    private static List<String> toFieldList(Map<String, String> cells) {
+        return COLUMNS.stream().map(column -> cells.getOrDefault(column, "")).collect(Collectors.toList());
+    }
+
+    /**
+     * Non-empty CSV cells as ProductRequest properties; empty cells keep the request defaults
+     */
+    private static Map<String, Object> toValues(List<String> fields) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            String cell = fields.get(i);
+            if (cell == null || cell.isBlank()) {
+                continue;
+            }
+            String column = COLUMNS.get(i);
+            if (LIST_COLUMNS.contains(column)) {
+                values.put(column, Arrays.stream(cell.split("\\" + LIST_SEPARATOR))
+                        .map(String::trim)
+                        .filter(element -> !element.isEmpty())
+                        .collect(Collectors.toList()));
+            } else {
+                values.put(column, cell.trim());
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, Object> exportRow(Product product, List<String> gallery, List<String> highlights) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", product.getId());
+        row.put("title", product.getTitle());
+        row.put("description", product.getDescription());
+        row.put("brandName", product.getBrandName());
+        row.put("brandSlug", product.getBrandSlug());
+        row.put("brandLogoUrl", product.getBrandLogoUrl());
+        row.put("price", product.getPrice());
+        row.put("originalPrice", product.getOriginalPrice());
+        row.put("imageUrl", product.getImageUrl());
+        row.put("mainImageUrl", product.getMainImageUrl());
+        row.put("galleryImages", gallery != null ? gallery : List.of());
+        row.put("isActive", product.getIsActive());
+        row.put("inStock", product.getInStock());
+        row.put("stockQuantity", product.getStockQuantity());
+        row.put("isOnSale", product.getIsOnSale());
+        row.put("isNew", product.getIsNew());
+        row.put("scheduledPrice", product.getScheduledPrice());
+        row.put("priceStartDate", product.getPriceStartDate());
+        row.put("priceEndDate", product.getPriceEndDate());
+        row.put("highlights", highlights != null ? highlights : List.of());
+        row.put("specificationsJson", product.getSpecificationsJson());
+        return row;
+    }
+
+    private static String toCell(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(String::valueOf).collect(Collectors.joining(LIST_SEPARATOR));
+        }
+        return value.toString();
+    }
+
+    private static Map<Long, List<String>> group(List<Object[]> rows) {
+        Map<Long, List<String>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return grouped;
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "unreadable row";
+        }
+        int newline = message.indexOf('\n');
+        return newline < 0 ? message : message.substring(0, newline);
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.cache.ContentVersions;
+import com.example.machines.dto.ProductSearchHit;
+import com.example.machines.dto.ProductSearchResponse;
+import com.example.machines.entity.Product;
+import com.example.machines.repository.ProductRepository;
+import com.example.machines.util.ImageVariants;
+import com.example.machines.util.PriceBuckets;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process Lucene full-text index over active products (title, brand, highlights and
+ * description). The index is rebuilt from the database on startup and then kept current from
+ * ContentChangedEvents, one document per product write; near-real-time readers make a change
+ * searchable as soon as the event is handled. Matching is per query word: exact and prefix
+ * matches first, with title and brand weighted highest, and edit-distance (typo) matches only
+ * when that finds nothing.
+ */
+@Service
+public class ProductSearchIndex {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String BRAND = "brandName";
+    private static final String HIGHLIGHTS = "highlights";
+    private static final String DESCRIPTION = "description";
+    // Catch-all text field for prefix and typo matching
+    private static final String ALL = "all";
+    private static final String BRAND_FACET = "brand_facet";
+    private static final String PRICE_FACET = "price_facet";
+
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            TITLE, 4f, BRAND, 3f, HIGHLIGHTS, 1.5f, DESCRIPTION, 1f);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Blank: a new temporary directory for each instance, removed on shutdown
+    @Value("${app.search.index-dir:}")
+    private String indexDir;
+
+    // No stop words: short product terms such as "a" in model names still have to match
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+
+    private Path indexPath;
+    private boolean temporaryIndex;
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private TransactionTemplate readTransaction;
+
+    // Serializes rebuilds with incremental updates so a rebuild cannot drop a newer document
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @PostConstruct
+    public void open() throws IOException {
+        // Each instance needs a directory of its own: a second IndexWriter on it fails on the
+        // write lock, and OpenMode.CREATE would wipe the other instance's index
+        temporaryIndex = indexDir == null || indexDir.isBlank();
+        indexPath = temporaryIndex ? Files.createTempDirectory("machines-search-index") : Path.of(indexDir);
+        Files.createDirectories(indexPath);
+        directory = FSDirectory.open(indexPath);
+        // The index is derived data: start empty and rebuild from the database
+        IndexWriterConfig config = new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+
+        readTransaction = new TransactionTemplate(transactionManager);
+        // Events are handled after the publishing transaction committed, so reads need their own
+        readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        if (temporaryIndex) {
+            try (Stream<Path> paths = Files.walk(indexPath)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            // Highlights are lazy, so documents are built inside the read transaction
+            int indexed = readTransaction.execute(status -> replaceAll(productRepository.findByIsActiveTrue()));
+            System.out.println("Product search index built with " + indexed + " products");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given products and makes them searchable
+     */
+    int replaceAll(List<Product> products) {
+        try {
+            writer.deleteAll();
+            for (Product product : products) {
+                writer.addDocument(toDocument(product));
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            return products.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Order(ContentVersions.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (event.getType() != ContentChangedEvent.ContentType.PRODUCT) {
+            // Rating changes from reviews arrive as their own PRODUCT event
+            return;
+        }
+        if (event.getId() == null) {
+            rebuild();
+            return;
+        }
+        writeLock.lock();
+        try {
+            readTransaction.executeWithoutResult(status -> {
+                Product product = productRepository.findById(event.getId()).orElse(null);
+                Term id = new Term(ID, String.valueOf(event.getId()));
+                try {
+                    if (product == null || !Boolean.TRUE.equals(product.getIsActive())) {
+                        writer.deleteDocuments(id);
+                    } else {
+                        writer.updateDocument(id, toDocument(product));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // No reader reopen here: the next search reopens once for a whole burst of saves
+        } catch (UncheckedIOException e) {
+            System.err.println("Error updating search index for product " + event.getId() + ": " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Searches use near-real-time readers; commits only bound the work redone after a crash
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Full-text search with optional brand and price-bucket filters. An empty query matches
+     * every active product, which makes the facets usable for browsing.
+     */
+    public ProductSearchResponse search(String queryText, String brand, String priceBucket, Integer limit, Integer offset) {
+        int size = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+        int from = offset == null ? 0 : Math.max(offset, 0);
+        String brandFilter = brand == null || brand.isBlank() ? null : brand.trim();
+        String priceFilter = priceBucket == null || priceBucket.isBlank() ? null : priceBucket.trim();
+        if (priceFilter != null && !PriceBuckets.isLabel(priceFilter)) {
+            throw new IllegalArgumentException("Unknown price bucket: " + priceFilter + ". Expected one of " + PriceBuckets.LABELS);
+        }
+
+        List<String> terms = analyze(queryText);
+        IndexSearcher searcher = null;
+        try {
+            // Picks up changes written since the last search; skipped while another search reopens
+            searcherManager.maybeRefresh();
+            searcher = searcherManager.acquire();
+            Query textQuery = buildTextQuery(terms, false);
+            FacetCounter facets = count(searcher, textQuery, brandFilter, priceFilter);
+            if (facets.textMatches == 0 && terms.stream().anyMatch(term -> term.length() >= MIN_FUZZY_LENGTH)) {
+                // Nothing matched exactly or as a prefix: retry allowing typos, which is far costlier
+                textQuery = buildTextQuery(terms, true);
+                facets = count(searcher, textQuery, brandFilter, priceFilter);
+            }
+
+            BooleanQuery.Builder filtered = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+            if (brandFilter != null) {
+                filtered.add(new TermQuery(new Term(BRAND_FACET, brandFilter)), BooleanClause.Occur.FILTER);
+            }
+            if (priceFilter != null) {
+                filtered.add(new TermQuery(new Term(PRICE_FACET, priceFilter)), BooleanClause.Occur.FILTER);
+            }
+            TopDocs top = searcher.search(filtered.build(), from + size);
+            StoredFields storedFields = searcher.storedFields();
+            List<ProductSearchHit> hits = new ArrayList<>();
+            for (int i = from; i < top.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = top.scoreDocs[i];
+                hits.add(toHit(storedFields.document(scoreDoc.doc), scoreDoc.score));
+            }
+            return new ProductSearchResponse(queryText, facets.matches, hits, byCountDescending(facets.brands), facets.prices);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    System.err.println("Error releasing search index reader: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Map<String, Long> byCountDescending(Map<String, Long> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    private static FacetCounter count(IndexSearcher searcher, Query textQuery, String brandFilter, String priceFilter) throws IOException {
+        return searcher.search(textQuery, new CollectorManager<FacetCounter, FacetCounter>() {
+            @Override
+            public FacetCounter newCollector() {
+                return new FacetCounter(brandFilter, priceFilter);
+            }
+
+            // One counter per slice of segments searched
+            @Override
+            public FacetCounter reduce(Collection<FacetCounter> counters) throws IOException {
+                FacetCounter total = new FacetCounter(brandFilter, priceFilter);
+                for (FacetCounter counter : counters) {
+                    counter.flush();
+                    total.add(counter);
+                }
+                return total;
+            }
+        });
+    }
+
+    /**
+     * Every query word has to match. Exact words score per field with the field boosts; prefix
+     * and typo matches run against the catch-all field, so each word builds one automaton.
+     */
+    private Query buildTextQuery(List<String> terms, boolean fuzzy) {
+        if (terms.isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (Map.Entry<String, Float> field : FIELD_BOOSTS.entrySet()) {
+                anyField.add(new BoostQuery(new TermQuery(new Term(field.getKey(), term)), field.getValue()), BooleanClause.Occur.SHOULD);
+            }
+            Term allTerm = new Term(ALL, term);
+            if (term.length() >= 2) {
+                anyField.add(new BoostQuery(new PrefixQuery(allTerm), 0.5f), BooleanClause.Occur.SHOULD);
+            }
+            if (fuzzy && term.length() >= MIN_FUZZY_LENGTH) {
+                int maxEdits = term.length() >= 10 ? 2 : 1;
+                anyField.add(new BoostQuery(new FuzzyQuery(allTerm, maxEdits, 1), 0.3f), BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < 10) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private Document toDocument(Product product) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, String.valueOf(product.getId()), Field.Store.YES));
+        doc.add(new TextField(TITLE, product.getTitle(), Field.Store.YES));
+        doc.add(new TextField(ALL, product.getTitle(), Field.Store.NO));
+        if (product.getBrandName() != null) {
+            doc.add(new TextField(BRAND, product.getBrandName(), Field.Store.YES));
+            doc.add(new TextField(ALL, product.getBrandName(), Field.Store.NO));
+            doc.add(new StringField(BRAND_FACET, product.getBrandName(), Field.Store.NO));
+            doc.add(new SortedDocValuesField(BRAND_FACET, new BytesRef(product.getBrandName())));
+        }
+        if (product.getHighlights() != null) {
+            for (String highlight : product.getHighlights()) {
+                if (highlight != null) {
+                    doc.add(new TextField(HIGHLIGHTS, highlight, Field.Store.NO));
+                    doc.add(new TextField(ALL, highlight, Field.Store.NO));
+                }
+            }
+        }
+        if (product.getDescription() != null) {
+            doc.add(new TextField(DESCRIPTION, product.getDescription(), Field.Store.NO));
+            doc.add(new TextField(ALL, product.getDescription(), Field.Store.NO));
+        }
+        String bucket = PriceBuckets.bucket(product.getPrice());
+        doc.add(new StringField(PRICE_FACET, bucket, Field.Store.NO));
+        doc.add(new SortedDocValuesField(PRICE_FACET, new BytesRef(bucket)));
+
+        // Stored fields for the hit list, so results render without a database round trip
+        String primaryImage = product.getMainImageUrl() != null ? product.getMainImageUrl() : product.getImageUrl();
+        storeIfPresent(doc, "brandSlug", product.getBrandSlug());
+        storeIfPresent(doc, "price", product.getPrice());
+        storeIfPresent(doc, "originalPrice", product.getOriginalPrice());
+        storeIfPresent(doc, "thumbnailUrl", ImageVariants.thumbnail(primaryImage));
+        storeIfPresent(doc, "rating", product.getRating());
+        storeIfPresent(doc, "reviewCount", product.getReviewCount());
+        storeIfPresent(doc, "inStock", product.getInStock());
+        storeIfPresent(doc, "isOnSale", product.getIsOnSale());
+        return doc;
+    }
+
+    private static void storeIfPresent(Document doc, String name, Object value) {
+        if (value != null) {
+            doc.add(new StoredField(name, value.toString()));
+        }
+    }
+
+    private static ProductSearchHit toHit(Document doc, float score) {
+        return new ProductSearchHit(
+                Long.valueOf(doc.get(ID)),
+                doc.get(TITLE),
+                doc.get(BRAND),
+                doc.get("brandSlug"),
+                decimal(doc.get("price")),
+                decimal(doc.get("originalPrice")),
+                doc.get("thumbnailUrl"),
+                decimal(doc.get("rating")),
+                doc.get("reviewCount") != null ? Integer.valueOf(doc.get("reviewCount")) : null,
+                doc.get("inStock") != null ? Boolean.valueOf(doc.get("inStock")) : null,
+                doc.get("isOnSale") != null ? Boolean.valueOf(doc.get("isOnSale")) : null,
+                score
+        );
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    /**
+     * Counts brand and price-bucket values over the text matches in one pass. Brand counts apply
+     * the price filter only and price counts the brand filter only, so selecting one option does
+     * not hide the alternatives in its own facet. Ordinals are counted per segment and resolved
+     * to labels once per segment.
+     */
+    private static final class FacetCounter extends SimpleCollector {
+
+        private final String brandFilter;
+        private final String priceFilter;
+        private final Map<String, Long> brands = new LinkedHashMap<>();
+        private final Map<String, Long> prices = new LinkedHashMap<>();
+        private long matches;
+        private long textMatches;
+
+        private SortedDocValues brandValues;
+        private SortedDocValues priceValues;
+        private int brandFilterOrd;
+        private int priceFilterOrd;
+        private int[] brandCounts;
+        private int[] priceCounts;
+
+        FacetCounter(String brandFilter, String priceFilter) {
+            this.brandFilter = brandFilter;
+            this.priceFilter = priceFilter;
+            PriceBuckets.LABELS.forEach(label -> prices.put(label, 0L));
+        }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            flush();
+            brandValues = DocValues.getSorted(context.reader(), BRAND_FACET);
+            priceValues = DocValues.getSorted(context.reader(), PRICE_FACET);
+            brandFilterOrd = brandFilter != null ? brandValues.lookupTerm(new BytesRef(brandFilter)) : -1;
+            priceFilterOrd = priceFilter != null ? priceValues.lookupTerm(new BytesRef(priceFilter)) : -1;
+            brandCounts = new int[brandValues.getValueCount()];
+            priceCounts = new int[priceValues.getValueCount()];
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            textMatches++;
+            int brandOrd = brandValues.advanceExact(doc) ? brandValues.ordValue() : -1;
+            int priceOrd = priceValues.advanceExact(doc) ? priceValues.ordValue() : -1;
+            boolean brandMatches = brandFilter == null || (brandOrd >= 0 && brandOrd == brandFilterOrd);
+            boolean priceMatches = priceFilter == null || (priceOrd >= 0 && priceOrd == priceFilterOrd);
+            if (priceMatches && brandOrd >= 0) {
+                brandCounts[brandOrd]++;
+            }
+            if (brandMatches && priceOrd >= 0) {
+                priceCounts[priceOrd]++;
+            }
+            if (brandMatches && priceMatches) {
+                matches++;
+            }
+        }
+
+        void flush() throws IOException {
+            if (brandCounts == null) {
+                return;
+            }
+            for (int ord = 0; ord < brandCounts.length; ord++) {
+                if (brandCounts[ord] > 0) {
+                    brands.merge(brandValues.lookupOrd(ord).utf8ToString(), (long) brandCounts[ord], Long::sum);
+                }
+            }
+            for (int ord = 0; ord < priceCounts.length; ord++) {
+                if (priceCounts[ord] > 0) {
+                    prices.merge(priceValues.lookupOrd(ord).utf8ToString(), (long) priceCounts[ord], Long::sum);
+                }
+            }
+            brandCounts = null;
+            priceCounts = null;
+        }
+
+        void add(FacetCounter other) {
+            other.brands.forEach((label, count) -> brands.merge(label, count, Long::sum));
+            other.prices.forEach((label, count) -> prices.merge(label, count, Long::sum));
+            matches += other.matches;
+            textMatches += other.textMatches;
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
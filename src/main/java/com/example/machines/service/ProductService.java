@@ -1,6 +1,10 @@
 package com.example.machines.service;
 
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.cache.JsonFragmentCache;
+import com.example.machines.cache.JsonFragments;
 import com.example.machines.dto.PriceUpdateMessage;
+import com.example.machines.dto.ProductFilterResponse;
 import com.example.machines.dto.ProductRequest;
 import com.example.machines.dto.ProductResponse;
 import com.example.machines.entity.Product;
@@ -9,16 +13,26 @@ import com.example.machines.repository.ReviewRepository;
 import com.example.machines.repository.CartItemRepository;
 import com.example.machines.repository.FavoriteRepository;
 import com.example.machines.repository.OrderItemRepository;
+import com.example.machines.util.ImageVariants;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,7 +54,23 @@ public class ProductService {
     private OrderItemRepository orderItemRepository;
 
     @Autowired
-    private WebSocketService webSocketService;
+    private PriceUpdateCoalescer priceUpdateCoalescer;
+
+    @Autowired
+    private ProductSlugIndex productSlugIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JsonFragmentCache jsonFragmentCache;
+
+    @Autowired
+    private ProductFilterIndex productFilterIndex;
+
+    // Serializes the slug uniqueness check with the save that claims the slug on this node. Other
+    // nodes do not see it; across nodes the unique index on brand_slug rejects the second save
+    private final ReentrantLock slugWriteLock = new ReentrantLock();
     
     @Autowired
     @Lazy
@@ -66,6 +96,70 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Public listing as pre-serialized JSON; only products changed since their last render are serialized
+     */
+    public JsonFragments getAllProductsAsJson() {
+        List<Product> products = productRepository.findByIsActiveTrue();
+        products.forEach(this::applyScheduledPriceChange);
+        return toJsonFragments(products);
+    }
+
+    /**
+     * Public listing narrowed by brand, price, inStock, isOnSale, isNew and spec.* request
+     * parameters; the filter index picks the ids, so only matching rows are loaded
+     */
+    public JsonFragments getProductsAsJson(Map<String, List<String>> params) {
+        ProductFilterIndex.Criteria criteria = ProductFilterIndex.Criteria.fromParams(params);
+        if (criteria.isEmpty()) {
+            return getAllProductsAsJson();
+        }
+        criteria.value(ProductFilterIndex.ACTIVE, "true");
+        List<Long> ids = ProductFilterIndex.page(productFilterIndex.matches(criteria), 0, Integer.MAX_VALUE);
+        List<Product> products = findAllInOrder(ids);
+        products.forEach(this::applyScheduledPriceChange);
+        return toJsonFragments(products);
+    }
+
+    public JsonFragments getAllProductsForAdminAsJson() {
+        List<Product> products = productRepository.findAll();
+        products.forEach(this::applyScheduledPriceChange);
+        return toJsonFragments(products);
+    }
+
+    JsonFragments toJsonFragments(List<Product> products) {
+        return new JsonFragments(products.stream()
+                .map(product -> jsonFragmentCache.get(JsonFragmentCache.PRODUCT, product.getId(), product.getUpdatedAt(),
+                        () -> convertToResponse(product)))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Faceted filter over active products: brand, price, flag and spec.* request parameters
+     * select the products, which are returned a page at a time in id order with facet counts
+     */
+    public ProductFilterResponse filterProducts(Map<String, List<String>> params, Integer limit, Integer offset) {
+        int size = limit == null ? ProductFilterIndex.DEFAULT_LIMIT : Math.min(Math.max(limit, 1), ProductFilterIndex.MAX_LIMIT);
+        int from = offset == null ? 0 : Math.max(offset, 0);
+        ProductFilterIndex.FilterResult result = productFilterIndex.filter(ProductFilterIndex.Criteria.fromParams(params)
+                .value(ProductFilterIndex.ACTIVE, "true"));
+        List<Product> products = findAllInOrder(ProductFilterIndex.page(result.matches(), from, size));
+        products.forEach(this::applyScheduledPriceChange);
+        // Every listed product is active, so that facet tells the client nothing
+        result.facets().remove(ProductFilterIndex.ACTIVE);
+        return new ProductFilterResponse(result.matches().getLongCardinality(), toJsonFragments(products), result.facets());
+    }
+
+    private List<Product> findAllInOrder(List<Long> ids) {
+        Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        return ids.stream()
+                .map(byId::get)
+                // Deleted since the index answered
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     public ProductResponse getProductById(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
@@ -74,8 +168,19 @@ public class ProductService {
     }
 
     public ProductResponse getProductBySlug(String slug) {
-        Product product = productRepository.findByBrandSlug(slug)
-                .orElseThrow(() -> new RuntimeException("Product not found with slug: " + slug));
+        Long id = productSlugIndex.resolve(slug);
+        Product product = id != null ? productRepository.findById(id).orElse(null) : null;
+        if (product == null || !slug.equals(product.getBrandSlug())) {
+            // Stale index entry (row changed outside this service) - drop it and resolve again
+            if (id != null) {
+                productSlugIndex.remove(id);
+            }
+            Long refreshedId = productSlugIndex.resolve(slug);
+            product = refreshedId != null ? productRepository.findById(refreshedId).orElse(null) : null;
+            if (product == null) {
+                throw new RuntimeException("Product not found with slug: " + slug);
+            }
+        }
         applyScheduledPriceChange(product);
         return convertToResponse(product);
     }
@@ -91,7 +196,7 @@ public class ProductService {
         }
         applyRequestToProduct(product, request);
 
-        product = productRepository.save(product);
+        product = saveWithUniqueSlug(product);
         return convertToResponse(product);
     }
 
@@ -101,49 +206,173 @@ public class ProductService {
 
         applyRequestToProduct(product, request);
 
-        product = productRepository.save(product);
+        product = saveWithUniqueSlug(product);
         return convertToResponse(product);
     }
 
+    /**
+     * Creates or updates one import batch in a single transaction, keyed by brandSlug: a row
+     * updates the oldest product holding its slug, or creates one. Publishes no content events;
+     * the caller publishes one for the whole import. Returns the number of products created.
+     */
     @Transactional
+    public int upsertBySlug(List<ProductRequest> requests) {
+        slugWriteLock.lock();
+        boolean unlockAfterCommit = false;
+        try {
+            Map<String, Product> bySlug = new HashMap<>();
+            List<String> slugs = requests.stream().map(ProductRequest::getBrandSlug).distinct().collect(Collectors.toList());
+            for (Product existing : productRepository.findByBrandSlugIn(slugs)) {
+                bySlug.merge(existing.getBrandSlug(), existing, (a, b) -> a.getId() < b.getId() ? a : b);
+            }
+            int created = 0;
+            for (ProductRequest request : requests) {
+                Product product = bySlug.get(request.getBrandSlug());
+                if (product == null) {
+                    product = new Product();
+                    if (request.getIsActive() == null) {
+                        product.setIsActive(true);
+                    }
+                    if (request.getInStock() == null) {
+                        product.setInStock(true);
+                    }
+                    // A later row with the same slug updates this one
+                    bySlug.put(request.getBrandSlug(), product);
+                    created++;
+                }
+                applyRequestToProduct(product, request);
+            }
+            List<Product> saved = productRepository.saveAll(new ArrayList<>(bySlug.values()));
+            Map<Long, String> savedSlugs = new HashMap<>();
+            for (Product product : saved) {
+                savedSlugs.put(product.getId(), product.getBrandSlug());
+            }
+            // A batch that fails at flush or commit must not leave its slugs mapped to rolled-back ids,
+            // and no other writer may check those slugs until the index has them
+            unlockAfterCommit = afterCommit(() -> savedSlugs.forEach(productSlugIndex::update), slugWriteLock::unlock);
+            return created;
+        } finally {
+            if (!unlockAfterCommit) {
+                slugWriteLock.unlock();
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        afterCommit(action, () -> {
+        });
+    }
+
+    /**
+     * Runs the action once the current transaction commits, and then always runs the cleanup,
+     * committed or not. Outside a transaction the action runs now and false is returned, leaving
+     * the cleanup to the caller.
+     */
+    private static boolean afterCommit(Runnable action, Runnable cleanup) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        action.run();
+                    }
+                } finally {
+                    cleanup.run();
+                }
+            }
+        });
+        return true;
+    }
+
+    private Product saveProduct(Product product) {
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ContentChangedEvent.product(saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Saves the product after checking that no other product uses its slug, then records the
+     * slug in the in-memory index. Throws IllegalArgumentException on a conflict, including one
+     * the unique index reports because another node saved the slug first.
+     */
+    private Product saveWithUniqueSlug(Product product) {
+        String slug = product.getBrandSlug();
+        if (slug == null || slug.isBlank()) {
+            product.setBrandSlug(null);
+            Product saved = saveProduct(product);
+            productSlugIndex.update(saved.getId(), null);
+            return saved;
+        }
+
+        slugWriteLock.lock();
+        try {
+            Long owner = productSlugIndex.owner(slug);
+            boolean taken = (owner != null && !owner.equals(product.getId()))
+                    || (product.getId() == null
+                        ? productRepository.existsByBrandSlug(slug)
+                        : productRepository.existsByBrandSlugAndIdNot(slug, product.getId()));
+            if (taken) {
+                throw new IllegalArgumentException("Product slug already in use: " + slug);
+            }
+            Product saved;
+            try {
+                saved = saveProduct(product);
+            } catch (DataIntegrityViolationException e) {
+                // Another node claimed the slug after the check
+                boolean claimed = product.getId() == null
+                        ? productRepository.existsByBrandSlug(slug)
+                        : productRepository.existsByBrandSlugAndIdNot(slug, product.getId());
+                if (claimed) {
+                    throw new IllegalArgumentException("Product slug already in use: " + slug);
+                }
+                throw e;
+            }
+            productSlugIndex.update(saved.getId(), slug);
+            return saved;
+        } finally {
+            slugWriteLock.unlock();
+        }
+    }
+
+    // The soft-delete path throws to report the deactivation; it must still commit
+    @Transactional(noRollbackFor = IllegalStateException.class)
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
         // Check if product has been ordered (has OrderItems)
-        // If it has orders, we need to handle the foreign key constraint
-        boolean hasOrders = orderItemRepository.findAll().stream()
-                .anyMatch(item -> item.getProduct() != null && item.getProduct().getId().equals(id));
-
-        if (hasOrders) {
+        // Index-backed EXISTS on order_items.product_id, independent of order history size
+        if (orderItemRepository.existsByProductId(id)) {
             // Product has been ordered - cannot hard delete due to foreign key constraints
             // Use soft delete instead to preserve order history
             product.setIsActive(false);
             product.setInStock(false);
-            productRepository.save(product);
-            throw new RuntimeException("Cannot delete product that has been ordered. Product has been deactivated instead.");
+            saveProduct(product);
+            throw new IllegalStateException("Cannot delete product that has been ordered. Product has been deactivated instead.");
         }
 
-        // Hard delete - remove all related entities first
+        // Hard delete - remove all related rows first, one set-based DELETE per table
         // 1. Delete all cart items for this product
-        List<com.example.machines.entity.CartItem> cartItems = cartItemRepository.findByProductId(id);
-        cartItemRepository.deleteAll(cartItems);
+        cartItemRepository.deleteByProductId(id);
 
         // 2. Delete all favorites for this product
         favoriteRepository.deleteByProductId(id);
 
         // 3. Delete all reviews for this product
-        reviewRepository.deleteByProduct(product);
+        reviewRepository.deleteByProductId(id);
 
-        // 4. Delete all order items for this product (this will break order history)
-        // Note: This is a hard delete, so order history will lose product references
-        List<com.example.machines.entity.OrderItem> orderItems = orderItemRepository.findAll().stream()
-                .filter(item -> item.getProduct() != null && item.getProduct().getId().equals(id))
-                .collect(java.util.stream.Collectors.toList());
-        orderItemRepository.deleteAll(orderItems);
+        // 4. Delete any order items for this product (none exist past the check above,
+        // but keep the FK cleanup in case one is inserted concurrently)
+        orderItemRepository.deleteByProductId(id);
 
         // 5. Now delete the product itself
         productRepository.delete(product);
+        afterCommit(() -> productSlugIndex.remove(id));
+        eventPublisher.publishEvent(ContentChangedEvent.product(id));
     }
 
     private void applyRequestToProduct(Product product, ProductRequest request) {
@@ -279,7 +508,7 @@ public class ProductService {
             // Store original price before schedule if not already stored
             if (product.getOriginalPriceBeforeSchedule() == null) {
                 product.setOriginalPriceBeforeSchedule(product.getPrice());
-                productRepository.save(product);
+                saveProduct(product);
             }
             
             // Check if current time is within scheduled period
@@ -305,7 +534,7 @@ public class ProductService {
                 }
                 
                 if (needsSave) {
-                    productRepository.save(product);
+                    saveProduct(product);
                 }
                 
                 // Send WebSocket notification
@@ -316,7 +545,7 @@ public class ProductService {
                     "Price updated: Scheduled discount applied",
                     "PRICE_CHANGED"
                 );
-                webSocketService.broadcastPriceUpdate(priceUpdate);
+                priceUpdateCoalescer.publish(priceUpdate);
             } 
             // If before start date, use original price
             else if (now.isBefore(startDate)) {
@@ -340,7 +569,7 @@ public class ProductService {
                 }
                 
                 if (needsSave) {
-                    productRepository.save(product);
+                    saveProduct(product);
                 }
                 
                 // Send WebSocket notification
@@ -351,7 +580,7 @@ public class ProductService {
                     "Price reverted: Schedule not started yet",
                     "PRICE_REVERTED"
                 );
-                webSocketService.broadcastPriceUpdate(priceUpdate);
+                priceUpdateCoalescer.publish(priceUpdate);
             }
             // If end date has passed, revert to original price and clear scheduling
             else if (now.isAfter(endDate)) {
@@ -373,7 +602,7 @@ public class ProductService {
                 product.setPriceStartDate(null);
                 product.setPriceEndDate(null);
                 product.setOriginalPriceBeforeSchedule(null);
-                productRepository.save(product);
+                saveProduct(product);
                 System.out.println("Schedule cleared");
                 
                 // Send WebSocket notification (always send to sync cart)
@@ -384,7 +613,7 @@ public class ProductService {
                     "Price reverted: Schedule ended",
                     "SCHEDULE_ENDED"
                 );
-                webSocketService.broadcastPriceUpdate(priceUpdate);
+                priceUpdateCoalescer.publish(priceUpdate);
                 
                 // Also sync cart prices in database for all users who have this product in cart
                 try {
@@ -397,7 +626,8 @@ public class ProductService {
         }
     }
 
-    private ProductResponse convertToResponse(Product product) {
+    ProductResponse convertToResponse(Product product) {
+        String primaryImage = product.getMainImageUrl() != null ? product.getMainImageUrl() : product.getImageUrl();
         return new ProductResponse(
                 product.getId(),
                 product.getTitle(),
@@ -423,7 +653,11 @@ public class ProductService {
                 product.getHighlights(),
                 product.getSpecificationsJson(),
                 product.getCreatedAt(),
-                product.getUpdatedAt()
+                product.getUpdatedAt(),
+                ImageVariants.thumbnail(primaryImage),
+                ImageVariants.listing(primaryImage),
+                ImageVariants.hero(primaryImage),
+                ImageVariants.thumbnails(product.getGalleryImages())
         );
     }
 }
@@ -0,0 +1,120 @@
+package com.example.machines.service;
+
+import com.example.machines.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory slug <-> product id map, so SEO-friendly product URLs resolve to a primary key
+ * lookup. Loaded at startup and kept current by ProductService on create, update and delete.
+ * A miss falls back to the indexed brand_slug column and caches the result, which also covers
+ * rows written outside ProductService.
+ */
+@Service
+public class ProductSlugIndex {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Map<String, Long> slugToId = new ConcurrentHashMap<>();
+    private final Map<Long, String> idToSlug = new ConcurrentHashMap<>();
+
+    // Writers update both maps together; readers only ever need one of them
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Object[]> slugs = productRepository.findAllSlugs();
+        writeLock.lock();
+        try {
+            // Ordered newest first, so the oldest product wins on legacy duplicates
+            for (Object[] row : slugs) {
+                put((Long) row[0], (String) row[1]);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        System.out.println("Product slug index loaded with " + slugToId.size() + " slugs");
+    }
+
+    /**
+     * Returns true when the path segment is a product id rather than a slug
+     */
+    public static boolean isNumericId(String value) {
+        if (value == null || value.isEmpty() || value.length() > 18) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves a slug to its product id, or null when no product uses it
+     */
+    public Long resolve(String slug) {
+        Long id = slugToId.get(slug);
+        if (id != null) {
+            return id;
+        }
+        List<Long> ids = productRepository.findIdsByBrandSlug(slug);
+        if (ids.isEmpty()) {
+            return null;
+        }
+        update(ids.get(0), slug);
+        return ids.get(0);
+    }
+
+    /**
+     * Returns the id currently holding the slug, if it is known to the index
+     */
+    public Long owner(String slug) {
+        return slug != null ? slugToId.get(slug) : null;
+    }
+
+    public void update(Long id, String slug) {
+        writeLock.lock();
+        try {
+            removeId(id);
+            if (slug != null && !slug.isBlank()) {
+                put(id, slug);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        writeLock.lock();
+        try {
+            removeId(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void put(Long id, String slug) {
+        Long previousOwner = slugToId.put(slug, id);
+        if (previousOwner != null && !previousOwner.equals(id)) {
+            idToSlug.remove(previousOwner, slug);
+        }
+        idToSlug.put(id, slug);
+    }
+
+    private void removeId(Long id) {
+        String oldSlug = idToSlug.remove(id);
+        if (oldSlug != null) {
+            slugToId.remove(oldSlug, id);
+        }
+    }
+}
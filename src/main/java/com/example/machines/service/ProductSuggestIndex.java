@@ -0,0 +1,294 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.cache.ContentVersions;
+import com.example.machines.dto.ProductSuggestion;
+import com.example.machines.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Typeahead over active product titles, brand names and slugs. Suggestions live in an immutable
+ * snapshot of sorted prefix keys (every word start of a title, the brand name and the slug), so
+ * a lookup is two binary searches plus a bounded top-k scan over the matching key range. One-
+ * and two-character prefixes, whose ranges cover much of the catalog, have their top suggestions
+ * precomputed. A product change patches one row and swaps in a rebuilt snapshot; readers keep
+ * using the previous snapshot until the swap.
+ */
+@Service
+public class ProductSuggestIndex {
+
+    public static final int DEFAULT_LIMIT = 8;
+    public static final int MAX_LIMIT = 20;
+
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // Latest suggestion row per product id, patched from ContentChangedEvents
+    private final Map<Long, Object[]> rows = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    // Serializes row patches with the rebuild that publishes them. Rows are read under it too,
+    // as ProductSearchIndex does, so an older read can never be applied after a newer one
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuildLock.lock();
+        try {
+            replaceAll(productRepository.findSuggestRows());
+        } finally {
+            rebuildLock.unlock();
+        }
+        System.out.println("Product suggest index loaded with " + rows.size() + " products");
+    }
+
+    @Order(ContentVersions.DERIVED_DATA_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (event.getType() != ContentChangedEvent.ContentType.PRODUCT) {
+            // Rating changes from reviews arrive as their own PRODUCT event
+            return;
+        }
+        if (event.getId() == null) {
+            load();
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            List<Object[]> row = productRepository.findSuggestRow(event.getId());
+            // Price and stock saves leave every suggested field as it was
+            Object[] current = rows.get(event.getId());
+            if (row.isEmpty() ? current == null : Arrays.equals(current, row.get(0))) {
+                return;
+            }
+            if (row.isEmpty()) {
+                rows.remove(event.getId());
+            } else {
+                rows.put(event.getId(), row.get(0));
+            }
+            snapshot = Snapshot.build(rows.values());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces every row, e.g. after a bulk load. Rows are id, title, brandName, brandSlug,
+     * rating, reviewCount.
+     */
+    void replaceAll(List<Object[]> products) {
+        rebuildLock.lock();
+        try {
+            rows.clear();
+            for (Object[] row : products) {
+                rows.put((Long) row[0], row);
+            }
+            snapshot = Snapshot.build(rows.values());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Top suggestions whose title word, brand or slug starts with the query. Brands come first,
+     * then products by rating and review count.
+     */
+    public List<ProductSuggestion> suggest(String query, Integer limit) {
+        int k = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return snapshot.lookup(prefix, k);
+    }
+
+    /**
+     * Lower-cases and reduces the text to letters and digits separated by single spaces
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Immutable lookup structure. keys is sorted and keyTargets[i] is the suggestion that
+     * keys[i] leads to; suggestions are ordered best first, so a lower index is a better rank.
+     */
+    private static final class Snapshot {
+
+        private final ProductSuggestion[] suggestions;
+        private final String[] keys;
+        private final int[] keyTargets;
+        private final Map<String, int[]> precomputed;
+
+        private Snapshot(ProductSuggestion[] suggestions, String[] keys, int[] keyTargets, Map<String, int[]> precomputed) {
+            this.suggestions = suggestions;
+            this.keys = keys;
+            this.keyTargets = keyTargets;
+            this.precomputed = precomputed;
+        }
+
+        static Snapshot build(Collection<Object[]> rows) {
+            // Brands: best rating and total reviews over their products
+            Map<String, ProductSuggestion> brands = new HashMap<>();
+            List<ProductSuggestion> products = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                String title = (String) row[1];
+                String brandName = (String) row[2];
+                BigDecimal rating = row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO;
+                int reviewCount = row[5] != null ? (Integer) row[5] : 0;
+                products.add(new ProductSuggestion("product", title, (Long) row[0], (String) row[3], rating, reviewCount));
+                if (brandName != null && !normalize(brandName).isEmpty()) {
+                    brands.merge(normalize(brandName), new ProductSuggestion("brand", brandName, null, null, rating, reviewCount),
+                            (a, b) -> new ProductSuggestion("brand", a.getText(), null, null,
+                                    a.getRating().max(b.getRating()), a.getReviewCount() + b.getReviewCount()));
+                }
+            }
+            List<ProductSuggestion> ranked = new ArrayList<>(brands.values());
+            ranked.sort(Snapshot::compareRank);
+            products.sort(Snapshot::compareRank);
+            ranked.addAll(products);
+            ProductSuggestion[] suggestions = ranked.toArray(new ProductSuggestion[0]);
+
+            List<KeyTarget> keyList = new ArrayList<>();
+            for (int i = 0; i < suggestions.length; i++) {
+                ProductSuggestion suggestion = suggestions[i];
+                String text = normalize(suggestion.getText());
+                keyList.add(new KeyTarget(text, i));
+                if ("product".equals(suggestion.getType())) {
+                    // Every later word start, so "zig" finds "Usha Automatic Zig-Zag"
+                    for (int pos = text.indexOf(' '); pos >= 0; pos = text.indexOf(' ', pos + 1)) {
+                        keyList.add(new KeyTarget(text.substring(pos + 1), i));
+                    }
+                    String slug = normalize(suggestion.getBrandSlug());
+                    if (!slug.isEmpty() && !slug.equals(text)) {
+                        keyList.add(new KeyTarget(slug, i));
+                    }
+                }
+            }
+            keyList.sort((a, b) -> a.key().compareTo(b.key()));
+            String[] keys = new String[keyList.size()];
+            int[] keyTargets = new int[keyList.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keyList.get(i).key();
+                keyTargets[i] = keyList.get(i).target();
+            }
+
+            Snapshot snapshot = new Snapshot(suggestions, keys, keyTargets, new HashMap<>());
+            // Short prefixes match wide key ranges; answer them from a precomputed top list
+            for (String key : keys) {
+                for (int length = 1; length <= Math.min(PRECOMPUTED_PREFIX_LENGTH, key.length()); length++) {
+                    String prefix = key.substring(0, length);
+                    if (!snapshot.precomputed.containsKey(prefix)) {
+                        snapshot.precomputed.put(prefix, snapshot.scan(prefix, MAX_LIMIT));
+                    }
+                }
+            }
+            return snapshot;
+        }
+
+        private static int compareRank(ProductSuggestion a, ProductSuggestion b) {
+            int byRating = b.getRating().compareTo(a.getRating());
+            if (byRating != 0) {
+                return byRating;
+            }
+            int byReviews = Integer.compare(b.getReviewCount(), a.getReviewCount());
+            return byReviews != 0 ? byReviews : a.getText().compareTo(b.getText());
+        }
+
+        List<ProductSuggestion> lookup(String prefix, int k) {
+            int[] top = precomputed.get(prefix);
+            if (top == null) {
+                top = prefix.length() <= PRECOMPUTED_PREFIX_LENGTH ? new int[0] : scan(prefix, k);
+            }
+            int count = Math.min(k, top.length);
+            ProductSuggestion[] result = new ProductSuggestion[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = suggestions[top[i]];
+            }
+            return Arrays.asList(result);
+        }
+
+        /**
+         * Best k distinct suggestions among the keys starting with the prefix. Since a lower
+         * suggestion index is a better rank, this keeps the k smallest distinct targets.
+         */
+        private int[] scan(String prefix, int k) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            int[] best = new int[k];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                int target = keyTargets[i];
+                if (size == k && target >= best[k - 1]) {
+                    continue;
+                }
+                int pos = Arrays.binarySearch(best, 0, size, target);
+                if (pos >= 0) {
+                    continue;
+                }
+                pos = -pos - 1;
+                int moved = Math.min(size, k - 1) - pos;
+                if (moved > 0) {
+                    System.arraycopy(best, pos, best, pos + 1, moved);
+                }
+                best[pos] = target;
+                size = Math.min(size + 1, k);
+            }
+            return size == k ? best : Arrays.copyOf(best, size);
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private record KeyTarget(String key, int target) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.machines.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One real-time notification, published by WebSocketService on the application event bus and
+ * delivered by every transport listening for it: STOMP (WebSocketService itself) and
+ * server-sent events (SseEmitterRegistry). The destination is the STOMP one, /topic/... for a
+ * broadcast or /queue/... for the user named by user.
+ *
+ * Users are named by role and id, "user:42" or "admin:7": customers and admins are numbered in
+ * separate tables, so a bare id would name a customer and an admin at once. The STOMP principal
+ * and the SSE stream of a token are named the same way (see principalName).
+ */
+@Getter
+@AllArgsConstructor
+public class RealtimeEvent {
+
+    private static final String CUSTOMER_PREFIX = "user:";
+    private static final String ADMIN_PREFIX = "admin:";
+
+    private final String destination;
+    // The principal name of the user the event is for; null for a broadcast
+    private final String user;
+    private final Object payload;
+
+    public static RealtimeEvent broadcast(String destination, Object payload) {
+        return new RealtimeEvent(destination, null, payload);
+    }
+
+    public static RealtimeEvent toUser(String user, String destination, Object payload) {
+        return new RealtimeEvent(destination, user, payload);
+    }
+
+    /**
+     * The name a token's holder is known by: its role and userId claims
+     */
+    public static String principalName(Object role, long userId) {
+        return ("ADMIN".equals(role) ? ADMIN_PREFIX : CUSTOMER_PREFIX) + userId;
+    }
+
+    /**
+     * The name of the customer with this id, the owner of orders, carts and profiles
+     */
+    public static String customer(long userId) {
+        return CUSTOMER_PREFIX + userId;
+    }
+
+    public boolean isBroadcast() {
+        return user == null;
+    }
+
+    /**
+     * The SSE event name: the destination without its /topic/ or /queue/ prefix, with dots for
+     * slashes, e.g. "price-updates.batch" for /topic/price-updates/batch
+     */
+    public String getName() {
+        int prefixEnd = destination.indexOf('/', 1);
+        return destination.substring(prefixEnd + 1).replace('/', '.');
+    }
+}
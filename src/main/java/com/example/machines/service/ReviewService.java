@@ -1,5 +1,8 @@
 package com.example.machines.service;
 
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.cache.JsonFragmentCache;
+import com.example.machines.cache.JsonFragments;
 import com.example.machines.dto.ReviewRequest;
 import com.example.machines.dto.ReviewResponse;
 import com.example.machines.entity.Product;
@@ -7,6 +10,7 @@ import com.example.machines.entity.Review;
 import com.example.machines.repository.ProductRepository;
 import com.example.machines.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -23,6 +27,12 @@ public class ReviewService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JsonFragmentCache jsonFragmentCache;
+
     public List<ReviewResponse> getReviewsForProduct(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
@@ -32,6 +42,16 @@ public class ReviewService {
                 .collect(Collectors.toList());
     }
 
+    public JsonFragments getReviewsForProductAsJson(Long productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+
+        return new JsonFragments(reviewRepository.findByProduct(product).stream()
+                .map(review -> jsonFragmentCache.get(JsonFragmentCache.REVIEW, review.getId(), review.getCreatedAt(),
+                        () -> toResponse(review)))
+                .collect(Collectors.toList()));
+    }
+
     public ReviewResponse addReview(Long productId, ReviewRequest request) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
@@ -43,6 +63,7 @@ public class ReviewService {
         review.setComment(request.getComment());
 
         review = reviewRepository.save(review);
+        eventPublisher.publishEvent(ContentChangedEvent.reviews(productId));
 
         recalculateRating(product);
 
@@ -61,6 +82,8 @@ public class ReviewService {
         }
 
         reviewRepository.delete(review);
+        jsonFragmentCache.evict(JsonFragmentCache.REVIEW, reviewId);
+        eventPublisher.publishEvent(ContentChangedEvent.reviews(productId));
         recalculateRating(product);
     }
 
@@ -78,6 +101,7 @@ public class ReviewService {
             product.setReviewCount(count);
         }
         productRepository.save(product);
+        eventPublisher.publishEvent(ContentChangedEvent.product(product.getId()));
     }
 
     private ReviewResponse toResponse(Review review) {
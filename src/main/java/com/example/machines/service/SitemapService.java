@@ -0,0 +1,297 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.repository.BlogRepository;
+import com.example.machines.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * XML sitemaps for products (by brandSlug) and blogs (by slug). The URL set is held in memory
+ * and patched row by row from ContentChangedEvents, so a write only touches the one entry it
+ * changed. URLs are chunked by id range, CHUNK_SIZE ids per file, which keeps every file within
+ * the 50,000-URL protocol limit and confines a change to a single chunk. Each chunk and the
+ * sitemap index are rendered once after a change, gzipped, and served from memory until the
+ * next change to that chunk.
+ */
+@Service
+public class SitemapService {
+
+    public static final int CHUNK_SIZE = 50_000;
+
+    private static final String INDEX = "index";
+    private static final String PRODUCTS = "products";
+    private static final String BLOGS = "blogs";
+    private static final DateTimeFormatter W3C_DATETIME = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    // Public site the page URLs point at
+    @Value("${app.sitemap.site-url:https://andhramachinesagencies.com}")
+    private String siteUrl;
+
+    // Where crawlers fetch the chunk files listed in the index
+    @Value("${app.sitemap.location-url:https://andhramachinesagencies.com/api/sitemaps}")
+    private String locationUrl;
+
+    private record SitemapUrl(String loc, LocalDateTime lastmod) {
+    }
+
+    /**
+     * A rendered file. lastModified is the render time: renders only happen after a change, and
+     * unlike the newest lastmod it also moves forward when URLs are removed.
+     */
+    public record RenderedSitemap(byte[] xml, byte[] gzip, String contentHash, long lastModified) {
+
+        public String etag() {
+            return "\"" + contentHash + "\"";
+        }
+
+        public String gzipEtag() {
+            return "\"" + contentHash + "-gz\"";
+        }
+    }
+
+    private final Map<String, NavigableMap<Long, SitemapUrl>> sections = Map.of(
+            PRODUCTS, new ConcurrentSkipListMap<>(),
+            BLOGS, new ConcurrentSkipListMap<>());
+
+    private final Map<String, RenderedSitemap> rendered = new ConcurrentHashMap<>();
+
+    // Entry changes and renders are serialized so a render never caches a half-applied change
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload(PRODUCTS);
+        reload(BLOGS);
+        System.out.println("Sitemap loaded with " + sections.get(PRODUCTS).size() + " products and "
+                + sections.get(BLOGS).size() + " blogs");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        String section = switch (event.getType()) {
+            case PRODUCT -> PRODUCTS;
+            case BLOG -> BLOGS;
+            // Rating changes publish their own PRODUCT event; reviews have no URLs of their own
+            case REVIEW -> null;
+        };
+        if (section == null) {
+            return;
+        }
+        if (event.getId() == null) {
+            reload(section);
+            return;
+        }
+        List<Object[]> rows = PRODUCTS.equals(section)
+                ? productRepository.findSitemapEntry(event.getId())
+                : blogRepository.findSitemapEntry(event.getId());
+        lock.lock();
+        try {
+            NavigableMap<Long, SitemapUrl> urls = sections.get(section);
+            if (rows.isEmpty()) {
+                urls.remove(event.getId());
+            } else {
+                urls.put(event.getId(), toUrl(section, rows.get(0)));
+            }
+            rendered.remove(chunkName(section, event.getId() / CHUNK_SIZE));
+            rendered.remove(INDEX);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public RenderedSitemap getIndex() {
+        RenderedSitemap cached = rendered.get(INDEX);
+        return cached != null ? cached : render(INDEX);
+    }
+
+    /**
+     * Returns the named chunk, e.g. "products-0", or null when no such chunk has URLs
+     */
+    public RenderedSitemap getChunk(String name) {
+        RenderedSitemap cached = rendered.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        int dash = name.lastIndexOf('-');
+        if (dash < 0 || !sections.containsKey(name.substring(0, dash)) || !ProductSlugIndex.isNumericId(name.substring(dash + 1))) {
+            return null;
+        }
+        return chunk(name.substring(0, dash), Long.parseLong(name.substring(dash + 1))).isEmpty() ? null : render(name);
+    }
+
+    private void reload(String section) {
+        List<Object[]> rows = PRODUCTS.equals(section)
+                ? productRepository.findSitemapEntries()
+                : blogRepository.findSitemapEntries();
+        NavigableMap<Long, SitemapUrl> fresh = new ConcurrentSkipListMap<>();
+        for (Object[] row : rows) {
+            fresh.put((Long) row[0], toUrl(section, row));
+        }
+        lock.lock();
+        try {
+            NavigableMap<Long, SitemapUrl> urls = sections.get(section);
+            urls.clear();
+            urls.putAll(fresh);
+            rendered.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RenderedSitemap render(String name) {
+        lock.lock();
+        try {
+            RenderedSitemap cached = rendered.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            ByteArrayOutputStream xml = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(xml, StandardCharsets.UTF_8)) {
+                if (INDEX.equals(name)) {
+                    writeIndex(writer);
+                } else {
+                    int dash = name.lastIndexOf('-');
+                    writeUrlSet(writer, chunk(name.substring(0, dash), Long.parseLong(name.substring(dash + 1))));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            byte[] body = xml.toByteArray();
+            RenderedSitemap result = new RenderedSitemap(body, gzip(body), DigestUtils.md5DigestAsHex(body),
+                    System.currentTimeMillis());
+            rendered.put(name, result);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeIndex(Writer writer) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (String section : List.of(PRODUCTS, BLOGS)) {
+            NavigableMap<Long, SitemapUrl> urls = sections.get(section);
+            if (urls.isEmpty()) {
+                continue;
+            }
+            for (long chunk = urls.firstKey() / CHUNK_SIZE; chunk <= urls.lastKey() / CHUNK_SIZE; chunk++) {
+                NavigableMap<Long, SitemapUrl> entries = chunk(section, chunk);
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                writer.write("  <sitemap>\n    <loc>");
+                writer.write(escapeXml(locationUrl + "/" + chunkName(section, chunk) + ".xml"));
+                writer.write("</loc>\n");
+                writeLastmod(writer, "    ", newest(entries));
+                writer.write("  </sitemap>\n");
+            }
+        }
+        writer.write("</sitemapindex>\n");
+    }
+
+    private void writeUrlSet(Writer writer, NavigableMap<Long, SitemapUrl> entries) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (SitemapUrl url : entries.values()) {
+            writer.write("  <url>\n    <loc>");
+            writer.write(escapeXml(url.loc()));
+            writer.write("</loc>\n");
+            writeLastmod(writer, "    ", url.lastmod());
+            writer.write("  </url>\n");
+        }
+        writer.write("</urlset>\n");
+    }
+
+    private void writeLastmod(Writer writer, String indent, LocalDateTime lastmod) throws IOException {
+        if (lastmod == null) {
+            return;
+        }
+        writer.write(indent);
+        writer.write("<lastmod>");
+        writer.write(lastmod.truncatedTo(ChronoUnit.SECONDS).atZone(ZoneId.systemDefault()).format(W3C_DATETIME));
+        writer.write("</lastmod>\n");
+    }
+
+    private NavigableMap<Long, SitemapUrl> chunk(String section, long chunk) {
+        return sections.get(section).subMap(chunk * CHUNK_SIZE, true, (chunk + 1) * CHUNK_SIZE, false);
+    }
+
+    private SitemapUrl toUrl(String section, Object[] row) {
+        Long id = (Long) row[0];
+        String slug = (String) row[1];
+        LocalDateTime updatedAt = (LocalDateTime) row[2];
+        if (PRODUCTS.equals(section)) {
+            // Products without a slug still resolve by id
+            String path = slug != null && !slug.isEmpty() ? encode(slug) : String.valueOf(id);
+            return new SitemapUrl(siteUrl + "/products/" + path, updatedAt);
+        }
+        return new SitemapUrl(siteUrl + "/blog/" + encode(slug), updatedAt);
+    }
+
+    private static String chunkName(String section, long chunk) {
+        return section + "-" + chunk;
+    }
+
+    private static LocalDateTime newest(NavigableMap<Long, SitemapUrl> entries) {
+        LocalDateTime newest = null;
+        for (SitemapUrl url : entries.values()) {
+            if (url.lastmod() != null && (newest == null || url.lastmod().isAfter(newest))) {
+                newest = url.lastmod();
+            }
+        }
+        return newest;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&apos;");
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,454 @@
+package com.example.machines.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-sent event streams for the one-way notifications WebSocketService publishes. Every
+ * RealtimeEvent is serialized once, numbered, kept in a ring log of the last replay-size
+ * events and queued to each client allowed to see it: broadcasts to everyone (admin topics to
+ * admins only), user events to that user's streams.
+ *
+ * Publishing never blocks on a client. Each client has a queue of at most buffer-size events,
+ * drained by a small worker pool; a client whose queue fills up is disconnected, and on
+ * reconnecting with Last-Event-ID gets what it missed from the ring log. If that is no longer
+ * in the log, it gets a "resync" event instead and should reload its state.
+ *
+ * A client that stops reading blocks the worker writing to it until the container's write
+ * timeout. A watchdog disconnects any client whose write has taken longer than
+ * send-time-limit-ms, and the pool gets a spare worker (at most spare-workers) while the stalled
+ * write still holds its thread, so stalled clients cannot take every worker away from the rest.
+ *
+ * Only a single node can serve SSE: each node numbers the events it publishes itself, so with
+ * app.websocket.broker=relay a stream would miss the other nodes' events and Last-Event-ID
+ * would mean something different on every node. In relay mode the registry is off, and
+ * clients use STOMP, which the relay delivers across nodes.
+ *
+ * Meters: "sse.clients" (gauge), "sse.events" (events written to clients) and "sse.disconnects"
+ * by reason (overflow, stalled, error).
+ */
+@Service
+public class SseEmitterRegistry {
+
+    public static final String RESYNC_EVENT = "resync";
+
+    private static final Object KEEP_ALIVE = new Object();
+
+    // Events written to a client per flush
+    private static final int MAX_WRITE_BATCH = 64;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.sse.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${app.sse.replay-size:1000}")
+    private int replaySize;
+
+    @Value("${app.sse.keepalive-ms:15000}")
+    private long keepAliveMs;
+
+    @Value("${app.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.sse.retry-ms:3000}")
+    private long retryMs;
+
+    @Value("${app.sse.workers:4}")
+    private int workers;
+
+    @Value("${app.sse.send-time-limit-ms:5000}")
+    private long sendTimeLimitMs;
+
+    @Value("${app.sse.spare-workers:16}")
+    private int spareWorkers;
+
+    @Value("${app.websocket.broker:simple}")
+    private String broker;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Client>> clientsByUser = new ConcurrentHashMap<>();
+
+    // Guarded by logLock: the ring log and the last id, so ids are queued to each client in order
+    private final Object logLock = new Object();
+    private Entry[] log;
+    private long lastId;
+
+    // Created here rather than as beans so they do not replace the @Async and @Scheduled executors
+    private ThreadPoolTaskExecutor sendExecutor;
+    private ThreadPoolTaskScheduler keepAliveScheduler;
+
+    // Guarded by poolLock: writes stalled past the limit that still hold a worker
+    private final ReentrantLock poolLock = new ReentrantLock();
+    private int stalledSends;
+
+    private Counter eventsSent;
+    private Counter overflowDisconnects;
+    private Counter stalledDisconnects;
+    private Counter errorDisconnects;
+
+    private record Entry(long id, String name, String user, boolean adminOnly, String data) {
+    }
+
+    @PostConstruct
+    public void init() {
+        log = new Entry[replaySize];
+
+        sendExecutor = new ThreadPoolTaskExecutor();
+        sendExecutor.setCorePoolSize(workers);
+        // Room for the spare workers; the unbounded queue keeps the pool at its core size otherwise
+        sendExecutor.setMaxPoolSize(workers + spareWorkers);
+        sendExecutor.setThreadNamePrefix("sse-");
+        sendExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        sendExecutor.setAwaitTerminationSeconds(5);
+        sendExecutor.initialize();
+
+        keepAliveScheduler = new ThreadPoolTaskScheduler();
+        keepAliveScheduler.setPoolSize(1);
+        keepAliveScheduler.setThreadNamePrefix("sse-keepalive-");
+        keepAliveScheduler.initialize();
+        keepAliveScheduler.scheduleAtFixedRate(this::sendKeepAlives, Duration.ofMillis(keepAliveMs));
+        keepAliveScheduler.scheduleAtFixedRate(this::disconnectStalledClients, Duration.ofMillis(Math.max(sendTimeLimitMs / 4, 100)));
+
+        meterRegistry.gauge("sse.clients", clients, Set::size);
+        eventsSent = meterRegistry.counter("sse.events");
+        overflowDisconnects = meterRegistry.counter("sse.disconnects", "reason", "overflow");
+        stalledDisconnects = meterRegistry.counter("sse.disconnects", "reason", "stalled");
+        errorDisconnects = meterRegistry.counter("sse.disconnects", "reason", "error");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keepAliveScheduler.shutdown();
+        for (Client client : clients) {
+            client.close();
+        }
+        sendExecutor.shutdown();
+    }
+
+    /**
+     * Opens a stream for a client: user is the caller's principal name (RealtimeEvent.principalName),
+     * or null when anonymous. With a lastEventId the events after it are replayed first.
+     */
+    public SseEmitter subscribe(String user, boolean admin, Long lastEventId) {
+        Client client = new Client(new SseEmitter(timeoutMs), user, admin);
+        client.emitter.onCompletion(client::ended);
+        client.emitter.onError(error -> client.ended());
+        // On the container's thread, which may wait for a send; the client reconnects with its Last-Event-ID
+        client.emitter.onTimeout(client::timedOut);
+
+        Set<ResponseBodyEmitter.DataWithMediaType> first = new LinkedHashSet<>(
+                SseEmitter.event().reconnectTime(retryMs).comment("connected").build());
+        // Under the log lock no event can be numbered between the replay and the registration
+        synchronized (logLock) {
+            if (lastEventId != null) {
+                first.addAll(replay(client, lastEventId));
+            }
+            try {
+                // Sent before the emitter is returned, so Spring writes it and commits the response on
+                // the request thread; a drain committing it could race the filters still adding headers
+                client.emitter.send(first);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            clients.add(client);
+            if (user != null) {
+                clientsByUser.computeIfAbsent(user, key -> ConcurrentHashMap.newKeySet()).add(client);
+            }
+        }
+        return client.emitter;
+    }
+
+    @EventListener
+    public void onRealtimeEvent(RealtimeEvent event) {
+        if (!isAvailable()) {
+            return;
+        }
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event.getPayload());
+        } catch (JsonProcessingException e) {
+            System.err.println("Failed to serialize " + event.getDestination() + " for SSE: " + e.getMessage());
+            return;
+        }
+        boolean adminOnly = event.isBroadcast() && WebSocketService.ADMIN_DESTINATIONS.contains(event.getDestination());
+        synchronized (logLock) {
+            Entry entry = new Entry(++lastId, event.getName(), event.getUser(), adminOnly, data);
+            log[(int) (entry.id() % log.length)] = entry;
+            if (!event.isBroadcast()) {
+                // Only the user's own streams, however many clients are connected
+                for (Client client : clientsByUser.getOrDefault(event.getUser(), Set.of())) {
+                    client.offer(entry);
+                }
+                return;
+            }
+            for (Client client : clients) {
+                if (!adminOnly || client.admin) {
+                    client.offer(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * False with the broker relay, where this node's events are not all the events
+     */
+    public boolean isAvailable() {
+        return !"relay".equalsIgnoreCase(broker);
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    // Called with logLock held
+    private Set<ResponseBodyEmitter.DataWithMediaType> replay(Client client, long lastEventId) {
+        long oldest = Math.max(1, lastId - log.length + 1);
+        // A gap in the log, or an id from before a restart
+        if (lastEventId < oldest - 1 || lastEventId > lastId) {
+            return resync();
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (long id = lastEventId + 1; id <= lastId; id++) {
+            Entry entry = log[(int) (id % log.length)];
+            if (client.canSee(entry)) {
+                missed.add(entry);
+            }
+        }
+        // No more than a client may have queued while connected
+        if (missed.size() > bufferSize) {
+            return resync();
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+        for (Entry entry : missed) {
+            events.addAll(toEvent(entry));
+        }
+        return events;
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> resync() {
+        return SseEmitter.event().name(RESYNC_EVENT).id(String.valueOf(lastId)).data("{}", MediaType.APPLICATION_JSON).build();
+    }
+
+    private static Set<ResponseBodyEmitter.DataWithMediaType> toEvent(Entry entry) {
+        return SseEmitter.event().id(String.valueOf(entry.id())).name(entry.name())
+                .data(entry.data(), MediaType.APPLICATION_JSON).build();
+    }
+
+    private void sendKeepAlives() {
+        for (Client client : clients) {
+            // A comment line keeps proxies from timing out an idle stream
+            if (client.queue.isEmpty()) {
+                client.offer(KEEP_ALIVE);
+            }
+        }
+    }
+
+    private void disconnectStalledClients() {
+        long now = System.nanoTime();
+        long limit = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        for (Client client : clients) {
+            long started = client.sendStartedNanos;
+            if (started != 0 && now - started > limit) {
+                client.stalled();
+            }
+        }
+    }
+
+    // Grows the pool by one worker per stalled write, up to spareWorkers, and shrinks it back
+    private void adjustStalledSends(int delta) {
+        poolLock.lock();
+        try {
+            stalledSends += delta;
+            sendExecutor.setCorePoolSize(workers + Math.min(stalledSends, spareWorkers));
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    private void remove(Client client) {
+        clients.remove(client);
+        if (client.user != null) {
+            clientsByUser.computeIfPresent(client.user, (user, streams) -> {
+                streams.remove(client);
+                return streams.isEmpty() ? null : streams;
+            });
+        }
+    }
+
+    private final class Client {
+
+        private final SseEmitter emitter;
+        private final String user;
+        private final boolean admin;
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        // Set while the client holds a spare worker
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        // When the write in progress started, 0 when none is
+        private volatile long sendStartedNanos;
+
+        Client(SseEmitter emitter, String user, boolean admin) {
+            this.emitter = emitter;
+            this.user = user;
+            this.admin = admin;
+        }
+
+        boolean canSee(Entry entry) {
+            if (entry.user() != null) {
+                return entry.user().equals(user);
+            }
+            return !entry.adminOnly() || admin;
+        }
+
+        void offer(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(item)) {
+                overflowDisconnects.increment();
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        // At most one drain per client at a time, so its events are written in order
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Writes what is queued, up to MAX_WRITE_BATCH events per flush. The emitter is also
+         * completed here: send and complete lock the emitter, so completing it on the publishing
+         * thread would wait out a send blocked on a slow client.
+         */
+        void drain() {
+            try {
+                while (!closed.get() && !queue.isEmpty()) {
+                    Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+                    int events = 0;
+                    Object item;
+                    while (events < MAX_WRITE_BATCH && (item = queue.poll()) != null) {
+                        if (item instanceof Entry entry) {
+                            batch.addAll(toEvent(entry));
+                            events++;
+                        } else {
+                            batch.addAll(SseEmitter.event().comment("keep-alive").build());
+                        }
+                    }
+                    sendStartedNanos = System.nanoTime();
+                    try {
+                        emitter.send(batch);
+                    } finally {
+                        sendStartedNanos = 0;
+                    }
+                    eventsSent.increment(events);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, or the emitter already completed; a stalled one is counted already
+                if (!stalled.get()) {
+                    errorDisconnects.increment();
+                }
+                closed.set(true);
+                remove(this);
+            } finally {
+                draining.set(false);
+            }
+            // After releasing the drain, so a stall flagged as this write returned is still seen
+            if (stalled.compareAndSet(true, false)) {
+                adjustStalledSends(-1);
+            }
+            // Rechecked after releasing the drain, or a close() or offer() in between would be missed
+            if (closed.get()) {
+                complete();
+            } else if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void close() {
+            if (closed.getAndSet(true)) {
+                return;
+            }
+            remove(this);
+            queue.clear();
+            schedule();
+        }
+
+        /**
+         * Called by the watchdog for a write that has taken too long. The write cannot be
+         * abandoned, so the client is closed, it gets no more events, and its worker is replaced
+         * until the write returns or the container times it out.
+         */
+        void stalled() {
+            if (!stalled.compareAndSet(false, true)) {
+                return;
+            }
+            stalledDisconnects.increment();
+            adjustStalledSends(1);
+            close();
+            // Whichever drain runs next gives the spare worker back, even if the write returned meanwhile
+            schedule();
+        }
+
+        // The container completed the response
+        void ended() {
+            closed.set(true);
+            completed.set(true);
+            remove(this);
+        }
+
+        void timedOut() {
+            closed.set(true);
+            remove(this);
+            complete();
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed by the container
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.machines.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tickets for opening an event stream. Browsers' EventSource cannot set an Authorization
+ * header, and a JWT in the URL ends up in access logs and proxy logs. A client instead
+ * exchanges its JWT for a ticket (POST /api/events/ticket) and opens the stream with that: a
+ * random value that names one user's stream and nothing else.
+ *
+ * A ticket has to be used within ttl-ms of being issued. After that it stays good until the JWT
+ * it was issued for expires, because EventSource reconnects to the same URL, with Last-Event-ID,
+ * whenever the connection drops; a ticket that only worked once would get every reconnect a 401
+ * and lose the replay. It never outlives the JWT, so a logged ticket is worth no more than the
+ * token was.
+ *
+ * Tickets are kept in memory, which is enough because SSE is served by a single node.
+ */
+@Service
+public class StreamTicketService {
+
+    // 256 bits, as long as the JWT secret
+    private static final int TICKET_BYTES = 32;
+
+    @Value("${app.sse.ticket-ttl-ms:30000}")
+    private long ttlMs;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    /**
+     * @param firstUseByNanos  System.nanoTime() by which the first stream must be opened
+     * @param expiresAtMillis  when the JWT the ticket was issued for expires, epoch millis
+     */
+    public record Ticket(String user, boolean admin, long firstUseByNanos, long expiresAtMillis, boolean used) {
+
+        boolean isExpired(long nowNanos, long nowMillis) {
+            return nowMillis >= expiresAtMillis || (!used && nowNanos - firstUseByNanos > 0);
+        }
+    }
+
+    /**
+     * Issues a ticket for the user's stream, good until the token it was issued for expires
+     */
+    public String issue(String user, boolean admin, long tokenExpiresAtMillis) {
+        byte[] bytes = new byte[TICKET_BYTES];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long firstUseBy = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        tickets.put(ticket, new Ticket(user, admin, firstUseBy, tokenExpiresAtMillis, false));
+        return ticket;
+    }
+
+    /**
+     * Redeems a ticket: returns who it was issued to, or null for an unknown or expired ticket.
+     * The ticket stays valid, so the same stream can be reopened with it.
+     */
+    public Ticket redeem(String ticket) {
+        if (ticket == null || ticket.isBlank()) {
+            return null;
+        }
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        // Marks the ticket used, or drops it if it has expired, in one step
+        return tickets.computeIfPresent(ticket.trim(), (key, issued) -> issued.isExpired(nowNanos, nowMillis) ? null
+                : issued.used() ? issued
+                : new Ticket(issued.user(), issued.admin(), issued.firstUseByNanos(), issued.expiresAtMillis(), true));
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    // Tickets that were never used, and those whose token has expired
+    @Scheduled(fixedRate = 60000)
+    public void removeExpired() {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        tickets.values().removeIf(ticket -> ticket.isExpired(nowNanos, nowMillis));
+    }
+}
@@ -1,45 +1,95 @@
 package com.example.machines.service;
 
+import com.example.machines.dto.ImageUploadJob;
 import com.example.machines.dto.OrderStatusUpdateMessage;
 import com.example.machines.dto.PriceUpdateMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Real-time notifications. Each method publishes a RealtimeEvent on the application event bus;
+ * this class delivers it over STOMP and SseEmitterRegistry over server-sent events, so callers
+ * do not depend on which transport a client chose.
+ */
 @Service
 public class WebSocketService {
 
+    // Broadcasts carrying other users' orders or admin-only job state; only admins may receive them
+    public static final Set<String> ADMIN_DESTINATIONS = Set.of("/topic/order-updates", "/topic/upload-jobs");
+
+    // Every destination this class sends to; the queues are subscribed to under /user
+    public static final Set<String> DESTINATIONS = Set.of("/topic/price-updates", "/topic/price-updates/batch",
+            "/topic/order-updates", "/topic/upload-jobs", "/queue/price-updates", "/queue/order-updates",
+            "/queue/user-updates");
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Users with connected sessions, keyed by the principal name StompAuthInterceptor gives them
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Value("${app.websocket.broker:simple}")
+    private String broker;
+
     /**
-     * Broadcast price update to all connected clients
+     * Broadcast price update to all connected clients. Price changes are published through
+     * PriceUpdateCoalescer, which batches them onto /topic/price-updates/batch.
      */
     public void broadcastPriceUpdate(PriceUpdateMessage message) {
-        messagingTemplate.convertAndSend("/topic/price-updates", message);
+        eventPublisher.publishEvent(RealtimeEvent.broadcast("/topic/price-updates", message));
+    }
+
+    /**
+     * Repeats coalesced price updates one per frame on /topic/price-updates, for STOMP clients
+     * written before the batch topic. STOMP only: SSE clients never had the old topic, and a
+     * large batch sent item by item would overflow their buffers.
+     */
+    public void broadcastLegacyPriceUpdates(List<PriceUpdateMessage> messages) {
+        for (PriceUpdateMessage message : messages) {
+            onRealtimeEvent(RealtimeEvent.broadcast("/topic/price-updates", message));
+        }
+    }
+
+    /**
+     * Broadcast many price updates as one frame, for changes made to a set of products at once
+     */
+    public void broadcastPriceUpdates(List<PriceUpdateMessage> messages) {
+        eventPublisher.publishEvent(RealtimeEvent.broadcast("/topic/price-updates/batch", messages));
     }
 
     /**
      * Send price update to specific user (for cart updates)
      */
     public void sendPriceUpdateToUser(String userId, PriceUpdateMessage message) {
-        messagingTemplate.convertAndSendToUser(userId, "/queue/price-updates", message);
+        eventPublisher.publishEvent(RealtimeEvent.toUser(RealtimeEvent.customer(Long.parseLong(userId)), "/queue/price-updates", message));
     }
 
     /**
      * Send order status update to specific user
      */
     public void sendOrderStatusUpdate(Long userId, OrderStatusUpdateMessage message) {
-        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/order-updates", message);
+        eventPublisher.publishEvent(RealtimeEvent.toUser(RealtimeEvent.customer(userId), "/queue/order-updates", message));
     }
 
     /**
      * Broadcast order status update (for admin panel)
      */
     public void broadcastOrderStatusUpdate(OrderStatusUpdateMessage message) {
-        messagingTemplate.convertAndSend("/topic/order-updates", message);
+        eventPublisher.publishEvent(RealtimeEvent.broadcast("/topic/order-updates", message));
     }
 
     /**
@@ -50,7 +100,39 @@ public class WebSocketService {
         updateMessage.put("userId", userId);
         updateMessage.put("message", message);
         updateMessage.put("type", "USER_UPDATED");
-        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/user-updates", updateMessage);
+        eventPublisher.publishEvent(RealtimeEvent.toUser(RealtimeEvent.customer(userId), "/queue/user-updates", updateMessage));
+    }
+
+    /**
+     * Broadcast image upload job completion (for admin panel)
+     */
+    public void sendUploadJobUpdate(ImageUploadJob job) {
+        eventPublisher.publishEvent(RealtimeEvent.broadcast("/topic/upload-jobs", job));
+    }
+
+    /**
+     * STOMP delivery. A failure is logged rather than thrown, so it does not keep the event
+     * from the other transports.
+     */
+    @EventListener
+    public void onRealtimeEvent(RealtimeEvent event) {
+        try {
+            if (event.isBroadcast()) {
+                messagingTemplate.convertAndSend(event.getDestination(), event.getPayload());
+            } else if (!isOffline(event.getUser())) {
+                messagingTemplate.convertAndSendToUser(event.getUser(), event.getDestination(), event.getPayload());
+            }
+        } catch (MessagingException e) {
+            System.err.println("Failed to send " + event.getDestination() + " over STOMP: " + e.getMessage());
+        }
     }
-}
 
+    /**
+     * Whether a user message can be skipped without converting it. The simple broker's registry
+     * holds every session, so a user missing from it has nothing to receive the message; the
+     * relay's registry learns of other nodes' users periodically, so there it is always sent.
+     */
+    private boolean isOffline(String userId) {
+        return "simple".equalsIgnoreCase(broker) && userRegistry.getUser(userId) == null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.machines.util;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.safety.Safelist;
+
+/**
+ * Allow-list sanitizer for admin-authored article HTML. Keeps the usual formatting, lists,
+ * tables, links and images, drops scripts, event handlers and inline styles, and forces
+ * every link to carry rel="noopener nofollow". Relative links and images, such as
+ * href="/products/x", are kept as written.
+ */
+public final class HtmlSanitizer {
+
+    private static final Safelist ARTICLE = Safelist.relaxed()
+            .addTags("figure", "figcaption", "hr")
+            .addAttributes(":all", "class")
+            .addAttributes("a", "target")
+            .addEnforcedAttribute("a", "rel", "noopener nofollow")
+            .preserveRelativeLinks(true);
+
+    // Only used to resolve relative URLs for the protocol check; without a base they have no
+    // protocol and are dropped, with preserveRelativeLinks the original value is what is output
+    private static final String RESOLVE_BASE_URI = "https://base.invalid/";
+
+    private static final Document.OutputSettings OUTPUT = new Document.OutputSettings().prettyPrint(false);
+
+    private HtmlSanitizer() {
+    }
+
+    public static String sanitize(String html) {
+        if (html == null || html.isBlank()) {
+            return "";
+        }
+        return Jsoup.clean(html, RESOLVE_BASE_URI, ARTICLE, OUTPUT);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.machines.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Size-appropriate derivatives of Cloudinary images. A variant URL is the original delivery URL
+ * with a named transformation inserted after "/upload/", so the variant set of any stored image
+ * URL can be derived without extra columns. CloudinaryService requests the same transformations
+ * eagerly at upload time so the derivatives already exist on the CDN when first requested.
+ * URLs that are not Cloudinary delivery URLs are returned unchanged.
+ */
+public final class ImageVariants {
+
+    public static final String THUMBNAIL = "c_fill,w_150,h_150,g_auto,f_auto,q_auto";
+    public static final String LISTING = "c_limit,w_400,h_400,f_auto,q_auto";
+    public static final String HERO = "c_limit,w_1200,h_1200,f_auto,q_auto";
+
+    private static final String UPLOAD_SEGMENT = "/image/upload/";
+
+    private ImageVariants() {
+    }
+
+    public static String thumbnail(String url) {
+        return apply(url, THUMBNAIL);
+    }
+
+    public static String listing(String url) {
+        return apply(url, LISTING);
+    }
+
+    public static String hero(String url) {
+        return apply(url, HERO);
+    }
+
+    public static List<String> thumbnails(List<String> urls) {
+        if (urls == null) {
+            return null;
+        }
+        return urls.stream().map(ImageVariants::thumbnail).collect(Collectors.toList());
+    }
+
+    /**
+     * Full variant set for one image, keyed by variant name
+     */
+    public static Map<String, String> forUrl(String url) {
+        Map<String, String> variants = new LinkedHashMap<>();
+        variants.put("original", url);
+        variants.put("thumbnail", thumbnail(url));
+        variants.put("listing", listing(url));
+        variants.put("hero", hero(url));
+        return variants;
+    }
+
+    public static List<String> eagerTransformations() {
+        return List.of(THUMBNAIL, LISTING, HERO);
+    }
+
+    private static String apply(String url, String transformation) {
+        if (url == null || !url.contains("res.cloudinary.com")) {
+            return url;
+        }
+        int index = url.indexOf(UPLOAD_SEGMENT);
+        if (index < 0) {
+            return url;
+        }
+        int insertAt = index + UPLOAD_SEGMENT.length();
+        return url.substring(0, insertAt) + transformation + "/" + url.substring(insertAt);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.machines.util;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Fixed price ranges used for price facets and filters. Labels are stable, so clients can send
+ * a label back as a filter value.
+ */
+public final class PriceBuckets {
+
+    private static final long[] UPPER_BOUNDS = {5_000, 10_000, 25_000, 50_000};
+
+    public static final List<String> LABELS = List.of(
+            "0-5000", "5000-10000", "10000-25000", "25000-50000", "50000+");
+
+    private PriceBuckets() {
+    }
+
+    /**
+     * Returns the label of the bucket holding the price; lower bounds are inclusive
+     */
+    public static String bucket(BigDecimal price) {
+        if (price == null) {
+            return LABELS.get(0);
+        }
+        for (int i = 0; i < UPPER_BOUNDS.length; i++) {
+            if (price.compareTo(BigDecimal.valueOf(UPPER_BOUNDS[i])) < 0) {
+                return LABELS.get(i);
+            }
+        }
+        return LABELS.get(LABELS.size() - 1);
+    }
+
+    public static boolean isLabel(String value) {
+        return LABELS.contains(value);
+    }
+}
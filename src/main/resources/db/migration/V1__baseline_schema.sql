@@ -0,0 +1,243 @@
+-- Baseline schema, matching what spring.jpa.hibernate.ddl-auto=update produced before
+-- migrations were introduced. Existing databases are baselined at this version and skip it.
+
+create table admins (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    email varchar(255) not null,
+    name varchar(255) not null,
+    password varchar(255) not null,
+    phone varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table blogs (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    category varchar(255),
+    content LONGTEXT,
+    excerpt TEXT,
+    image_url varchar(255),
+    slug varchar(255) not null,
+    title varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table cart_items (
+    original_price decimal(10,2),
+    price decimal(10,2) not null,
+    quantity integer not null,
+    cart_id bigint not null,
+    id bigint not null auto_increment,
+    product_id bigint not null,
+    product_name varchar(500),
+    product_image varchar(1000),
+    brand_name varchar(255),
+    brand_slug varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table carts (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    user_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table favorites (
+    original_price decimal(10,2),
+    price decimal(10,2),
+    added_at datetime(6) not null,
+    id bigint not null auto_increment,
+    product_id bigint not null,
+    user_id bigint not null,
+    brand_name varchar(255),
+    brand_slug varchar(255),
+    product_image varchar(255),
+    product_name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table newsletter_subscribers (
+    id bigint not null auto_increment,
+    subscribed_at datetime(6),
+    email varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table order_items (
+    original_price decimal(10,2),
+    quantity integer not null,
+    total_price decimal(10,2) not null,
+    unit_price decimal(10,2) not null,
+    id bigint not null auto_increment,
+    order_id bigint not null,
+    product_id bigint not null,
+    product_name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    delivery_charge decimal(10,2),
+    discount decimal(10,2),
+    subtotal decimal(10,2) not null,
+    total decimal(10,2) not null,
+    whatsapp_sent bit,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    user_id bigint not null,
+    order_number varchar(255) not null,
+    payment_status varchar(255) not null,
+    shipping_address TEXT not null,
+    shipping_city varchar(255) not null,
+    shipping_email varchar(255) not null,
+    shipping_instructions TEXT,
+    shipping_landmark varchar(255),
+    shipping_name varchar(255) not null,
+    shipping_phone varchar(255) not null,
+    shipping_pincode varchar(255) not null,
+    shipping_state varchar(255) not null,
+    status enum ('CANCELLED','CONFIRMED','DELIVERED','PENDING','PROCESSING','SHIPPED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table product_gallery_images (
+    product_id bigint not null,
+    image_url varchar(255)
+) engine=InnoDB;
+
+create table product_highlights (
+    product_id bigint not null,
+    highlight varchar(255)
+) engine=InnoDB;
+
+create table products (
+    in_stock bit,
+    is_active bit,
+    is_new bit,
+    is_on_sale bit,
+    original_price decimal(10,2),
+    original_price_before_schedule decimal(10,2),
+    price decimal(10,2) not null,
+    rating decimal(3,2),
+    review_count integer,
+    scheduled_price decimal(10,2),
+    stock_quantity integer,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    price_end_date datetime(6),
+    price_start_date datetime(6),
+    updated_at datetime(6),
+    brand_logo_url varchar(255),
+    brand_name varchar(255),
+    brand_slug varchar(255),
+    description TEXT,
+    image_url varchar(255),
+    main_image_url varchar(255),
+    title varchar(255) not null,
+    specifications_json tinytext,
+    primary key (id)
+) engine=InnoDB;
+
+create table reviews (
+    rating integer not null,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    product_id bigint not null,
+    comment TEXT,
+    user_name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table users (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    reset_token_expiry datetime(6),
+    updated_at datetime(6),
+    email varchar(255) not null,
+    name varchar(255) not null,
+    password varchar(255) not null,
+    phone varchar(255),
+    reset_token varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+alter table admins
+   add constraint UK47bvqemyk6vlm0w7crc3opdd4 unique (email);
+
+alter table blogs
+   add constraint UKpl5w1yw2c5lligoeb9a393fr3 unique (slug);
+
+alter table carts
+   add constraint UK64t7ox312pqal3p7fg9o503c2 unique (user_id);
+
+alter table favorites
+   add constraint UKgh1s14hhb9qb8p2do933hscsf unique (user_id, product_id);
+
+alter table newsletter_subscribers
+   add constraint UKqqdefkuupml4s7190ettcy6jy unique (email);
+
+alter table orders
+   add constraint UKnthkiu7pgmnqnu86i2jyoe2v7 unique (order_number);
+
+alter table users
+   add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table cart_items
+   add constraint FKpcttvuq4mxppo8sxggjtn5i2c
+   foreign key (cart_id)
+   references carts (id);
+
+alter table cart_items
+   add constraint FK1re40cjegsfvw58xrkdp6bac6
+   foreign key (product_id)
+   references products (id);
+
+alter table carts
+   add constraint FKb5o626f86h46m4s7ms6ginnop
+   foreign key (user_id)
+   references users (id);
+
+alter table favorites
+   add constraint FK6sgu5npe8ug4o42bf9j71x20c
+   foreign key (product_id)
+   references products (id);
+
+alter table favorites
+   add constraint FKk7du8b8ewipawnnpg76d55fus
+   foreign key (user_id)
+   references users (id);
+
+alter table order_items
+   add constraint FKbioxgbv59vetrxe0ejfubep1w
+   foreign key (order_id)
+   references orders (id);
+
+alter table order_items
+   add constraint FKocimc7dtr037rh4ls4l95nlfi
+   foreign key (product_id)
+   references products (id);
+
+alter table orders
+   add constraint FK32ql8ubntj5uh44ph9659tiih
+   foreign key (user_id)
+   references users (id);
+
+alter table product_gallery_images
+   add constraint FKtcj80rt73ufauu9bcsb0okdq1
+   foreign key (product_id)
+   references products (id);
+
+alter table product_highlights
+   add constraint FKt8vebetw5hrcyu4vl2ilsd1vb
+   foreign key (product_id)
+   references products (id);
+
+alter table reviews
+   add constraint FKpl51cejpw4gy5swfar8br9ngi
+   foreign key (product_id)
+   references products (id);
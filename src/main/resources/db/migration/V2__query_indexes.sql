@@ -0,0 +1,35 @@
+-- Indexes for the repository query methods. Each one names the lookup it serves.
+
+-- ProductRepository.findByBrandSlug (product detail by slug)
+create index idx_products_brand_slug on products (brand_slug);
+
+-- ProductRepository.findByIsActiveTrue / findByInStockTrue (storefront listing)
+create index idx_products_is_active on products (is_active);
+create index idx_products_in_stock on products (in_stock);
+
+-- ProductRepository.findByScheduledPriceIsNotNullAndPriceStartDateIsNotNullAndPriceEndDateIsNotNull
+create index idx_products_price_schedule on products (price_start_date, price_end_date, scheduled_price);
+
+-- OrderRepository.findByUserOrderByCreatedAtDesc (seek and ordered read in one index)
+create index idx_orders_user_created on orders (user_id, created_at);
+
+-- OrderRepository.findAllByOrderByCreatedAtDesc (admin order list)
+create index idx_orders_created_at on orders (created_at);
+
+-- OrderItemRepository.existsByProductId / deleteByProductId
+create index idx_order_items_product_id on order_items (product_id);
+
+-- CartItemRepository.findByProductId / deleteByProductId (price sync, product delete)
+create index idx_cart_items_product_id on cart_items (product_id);
+
+-- ReviewRepository.findByProduct / deleteByProductId
+create index idx_reviews_product_id on reviews (product_id);
+
+-- FavoriteRepository.deleteByProductId; findByUserId is served by the (user_id, product_id) unique key
+create index idx_favorites_product_id on favorites (product_id);
+
+-- UserRepository.findByResetToken (password reset)
+create index idx_users_reset_token on users (reset_token);
+
+-- BlogRepository.findAllByOrderByCreatedAtDesc
+create index idx_blogs_created_at on blogs (created_at);
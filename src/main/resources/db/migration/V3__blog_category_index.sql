@@ -0,0 +1,3 @@
+-- BlogRepository.findSummariesByCategory / findSummariesByCategoryBefore
+-- (category, created_at, id) serves the filter, the keyset predicate and the sort from one range scan
+create index idx_blogs_category_created on blogs (category, created_at, id);
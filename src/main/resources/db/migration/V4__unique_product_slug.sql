@@ -0,0 +1,20 @@
+-- Product slugs are unique in the database, not only under ProductService's in-process lock,
+-- which does not hold across nodes
+
+-- The service stores a blank slug as null; older rows may still hold ''
+update products set brand_slug = null where trim(brand_slug) = '';
+
+-- Duplicates keep the slug on their oldest product, the one imports update, and the others get
+-- their id appended
+update products p
+join (select brand_slug, min(id) as keep_id
+      from products
+      where brand_slug is not null
+      group by brand_slug
+      having count(*) > 1) duplicated
+  on p.brand_slug = duplicated.brand_slug and p.id <> duplicated.keep_id
+set p.brand_slug = concat(p.brand_slug, '-', p.id);
+
+-- ProductRepository.findByBrandSlug, now also enforcing uniqueness; nulls may repeat
+drop index idx_products_brand_slug on products;
+create unique index uk_products_brand_slug on products (brand_slug);
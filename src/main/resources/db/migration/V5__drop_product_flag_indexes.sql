@@ -0,0 +1,5 @@
+-- idx_products_is_active and idx_products_in_stock (V2) index flags that most products have set,
+-- so findByIsActiveTrue / findByInStockTrue and the other whole-catalog reads scan the table
+-- either way (RepositoryQueryPlanTest allows exactly that). They only cost every product write.
+drop index idx_products_is_active on products;
+drop index idx_products_in_stock on products;
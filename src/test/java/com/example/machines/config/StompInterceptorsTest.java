@@ -0,0 +1,133 @@
+package com.example.machines.config;
+
+import com.example.machines.cache.ContentChangeBroadcaster;
+import com.example.machines.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * StompAuthInterceptor on CONNECT frames and StompDestinationInterceptor on SUBSCRIBE and SEND,
+ * with tokens signed by a real JwtUtil
+ */
+class StompInterceptorsTest {
+
+    private static final String SECRET = "stomp-interceptor-test-secret-key-that-is-at-least-256-bits";
+
+    private final StompAuthInterceptor authInterceptor = new StompAuthInterceptor();
+    private final StompDestinationInterceptor destinationInterceptor = new StompDestinationInterceptor();
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = jwtUtil(86_400_000L);
+        ReflectionTestUtils.setField(authInterceptor, "jwtUtil", jwtUtil);
+    }
+
+    @Test
+    void connectWithValidTokenNamesPrincipalByRoleAndId() {
+        assertEquals("user:7", connect("Bearer " + jwtUtil.generateToken("user@example.com", "USER", 7L)).getName());
+        assertEquals("admin:8", connect("Bearer " + jwtUtil.generateToken("admin@example.com", "ADMIN", 8L)).getName());
+    }
+
+    @Test
+    void adminAndCustomerWithTheSameIdAreDifferentPrincipals() {
+        Principal customer = connect("Bearer " + jwtUtil.generateToken("user@example.com", "USER", 5L));
+        Principal admin = connect("Bearer " + jwtUtil.generateToken("admin@example.com", "ADMIN", 5L));
+        assertNotEquals(customer.getName(), admin.getName());
+    }
+
+    @Test
+    void connectWithoutTokenStaysAnonymous() {
+        assertNull(connect(null));
+    }
+
+    @Test
+    void connectWithInvalidTokenIsRejected() {
+        assertThrows(MessageDeliveryException.class, () -> connect("Bearer not-a-jwt"));
+        assertThrows(MessageDeliveryException.class, () -> connect("Basic dXNlcjpwYXNz"));
+        // Signed with another key
+        String forged = jwtUtil(86_400_000L, "another-secret-key-that-is-also-at-least-256-bits-long")
+                .generateToken("user@example.com", "ADMIN", 1L);
+        assertThrows(MessageDeliveryException.class, () -> connect("Bearer " + forged));
+    }
+
+    @Test
+    void connectWithExpiredTokenIsRejected() {
+        String expired = jwtUtil(-60_000L).generateToken("user@example.com", "USER", 7L);
+        assertThrows(MessageDeliveryException.class, () -> connect("Bearer " + expired));
+    }
+
+    @Test
+    void adminTopicsNeedAnAdminSession() {
+        Principal customer = connect("Bearer " + jwtUtil.generateToken("user@example.com", "USER", 5L));
+        Principal admin = connect("Bearer " + jwtUtil.generateToken("admin@example.com", "ADMIN", 5L));
+        for (String topic : List.of("/topic/order-updates", "/topic/upload-jobs")) {
+            assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SUBSCRIBE, topic, null));
+            assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SUBSCRIBE, topic, customer));
+            assertDoesNotThrow(() -> frame(StompCommand.SUBSCRIBE, topic, admin));
+        }
+        assertDoesNotThrow(() -> frame(StompCommand.SUBSCRIBE, "/topic/price-updates/batch", null));
+        assertDoesNotThrow(() -> frame(StompCommand.SUBSCRIBE, "/user/queue/order-updates", customer));
+    }
+
+    @Test
+    void serverDestinationsAreClosedToClients() {
+        Principal admin = new UsernamePasswordAuthenticationToken("admin:1", null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SEND, "/topic/price-updates", admin));
+        assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SEND, "/user/user:2/queue/order-updates", admin));
+        assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SUBSCRIBE, WebSocketConfig.USER_REGISTRY_BROADCAST, admin));
+        assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SUBSCRIBE, ContentChangeBroadcaster.DESTINATION, admin));
+        assertThrows(MessageDeliveryException.class, () -> frame(StompCommand.SUBSCRIBE, "/topic/**", admin));
+        assertDoesNotThrow(() -> frame(StompCommand.SEND, "/app/ping", null));
+    }
+
+    // The principal the session gets from the CONNECT frame, null for an anonymous one
+    private Principal connect(String authorization) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        if (authorization != null) {
+            accessor.setNativeHeader(StompAuthInterceptor.AUTHORIZATION_HEADER, authorization);
+        }
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        Message<?> sent = authInterceptor.preSend(message, null);
+        return MessageHeaderAccessor.getAccessor(sent, StompHeaderAccessor.class).getUser();
+    }
+
+    private void frame(StompCommand command, String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId("0");
+        accessor.setUser(user);
+        destinationInterceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private static JwtUtil jwtUtil(long expiration) {
+        return jwtUtil(expiration, SECRET);
+    }
+
+    private static JwtUtil jwtUtil(long expiration, String secret) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", secret);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expiration);
+        return jwtUtil;
+    }
+}
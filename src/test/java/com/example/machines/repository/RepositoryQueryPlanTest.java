@@ -0,0 +1,236 @@
+package com.example.machines.repository;
+
+import com.example.machines.entity.Product;
+import com.example.machines.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every repository query against MySQL with the Flyway schema, captures the SQL Hibernate
+ * actually sends from the server's general log, and fails if EXPLAIN shows a full table scan.
+ * Queries that read a whole table by design are listed in FULL_SCAN_ALLOWED with the table they scan.
+ * Only statements from the query's own connection are captured, so scheduled jobs running
+ * meanwhile cannot add theirs.
+ */
+@SpringBootTest(properties = {
+        "jwt.secret=query-plan-test-secret-key-that-is-at-least-256-bits",
+        "jwt.expiration=86400000",
+        "CLOUDINARY_CLOUD_NAME=test",
+        "CLOUDINARY_API_KEY=test",
+        "CLOUDINARY_API_SECRET=test",
+        "spring.mail.username=test@example.com",
+        "spring.mail.password=test",
+        "app.admin.email=admin@example.com",
+        "app.admin.phone=+91 9848012345",
+        "spring.jpa.show-sql=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class RepositoryQueryPlanTest {
+
+    private static final int ROWS = 1000;
+
+    // Whole-catalog reads; the flag ones match most products, so an index on the flag would not be used
+    private static final Map<String, String> FULL_SCAN_ALLOWED = Map.of(
+            "ProductRepository.findByIsActiveTrue", "products",
+            "ProductRepository.findByInStockTrue", "products",
+            "ProductRepository.findAllSlugs", "products",
+            "ProductRepository.findSitemapEntries", "products",
+            "ProductRepository.findSuggestRows", "products",
+            "ProductRepository.findFilterRows", "products",
+            "OrderRepository.findAllByOrderByCreatedAtDesc", "orders",
+            "BlogRepository.findAllByOrderByCreatedAtDesc", "blogs",
+            "BlogRepository.findSitemapEntries", "blogs"
+    );
+
+    @Container
+    static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.36")
+            .withUsername("root")
+            .withCommand("--general-log=1", "--log-output=TABLE");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+    }
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private CartRepository cartRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private ReviewRepository reviewRepository;
+    @Autowired private FavoriteRepository favoriteRepository;
+    @Autowired private BlogRepository blogRepository;
+    @Autowired private NewsletterRepository newsletterRepository;
+    @Autowired private AdminRepository adminRepository;
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        seed();
+        User user = userRepository.findById(500L).orElseThrow();
+        Product product = productRepository.findById(500L).orElseThrow();
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("ProductRepository.findByIsActiveTrue", () -> productRepository.findByIsActiveTrue());
+        queries.put("ProductRepository.findByInStockTrue", () -> productRepository.findByInStockTrue());
+        queries.put("ProductRepository.findByBrandSlug", () -> productRepository.findByBrandSlug("product-500"));
+        queries.put("ProductRepository.findIdsByBrandSlug", () -> productRepository.findIdsByBrandSlug("product-500"));
+        queries.put("ProductRepository.existsByBrandSlug", () -> productRepository.existsByBrandSlug("product-500"));
+        queries.put("ProductRepository.existsByBrandSlugAndIdNot", () -> productRepository.existsByBrandSlugAndIdNot("product-500", 1L));
+        queries.put("ProductRepository.findAllSlugs", () -> productRepository.findAllSlugs());
+        queries.put("ProductRepository.findSitemapEntries", () -> productRepository.findSitemapEntries());
+        queries.put("ProductRepository.findSitemapEntry", () -> productRepository.findSitemapEntry(500L));
+        queries.put("ProductRepository.findSuggestRows", () -> productRepository.findSuggestRows());
+        queries.put("ProductRepository.findSuggestRow", () -> productRepository.findSuggestRow(500L));
+        queries.put("ProductRepository.findFilterRows", () -> productRepository.findFilterRows());
+        queries.put("ProductRepository.findFilterRow", () -> productRepository.findFilterRow(500L));
+        queries.put("ProductRepository.findByBrandSlugIn", () -> productRepository.findByBrandSlugIn(List.of("product-500", "product-501")));
+        queries.put("ProductRepository.findByIdGreaterThanOrderByIdAsc", () ->
+                productRepository.findByIdGreaterThanOrderByIdAsc(500L, PageRequest.of(0, 50)));
+        queries.put("ProductRepository.findGalleryImages", () -> productRepository.findGalleryImages(List.of(500L, 501L)));
+        queries.put("ProductRepository.findPriceRows", () -> productRepository.findPriceRows(List.of(500L, 501L)));
+        queries.put("ProductRepository.lockPriceRows", () -> productRepository.lockPriceRows(List.of(500L, 501L)));
+        queries.put("ProductRepository.findHighlights", () -> productRepository.findHighlights(List.of(500L, 501L)));
+        queries.put("ProductRepository.findByScheduledPrice...", () ->
+                productRepository.findByScheduledPriceIsNotNullAndPriceStartDateIsNotNullAndPriceEndDateIsNotNull());
+        queries.put("UserRepository.findByEmail", () -> userRepository.findByEmail("user500@example.com"));
+        queries.put("UserRepository.existsByEmail", () -> userRepository.existsByEmail("user500@example.com"));
+        queries.put("UserRepository.findByResetToken", () -> userRepository.findByResetToken("token-500"));
+        queries.put("OrderRepository.findByUserOrderByCreatedAtDesc", () -> orderRepository.findByUserOrderByCreatedAtDesc(user));
+        queries.put("OrderRepository.findByOrderNumber", () -> orderRepository.findByOrderNumber("ORD-500"));
+        queries.put("OrderRepository.findAllByOrderByCreatedAtDesc", () -> orderRepository.findAllByOrderByCreatedAtDesc());
+        queries.put("OrderItemRepository.existsByProductId", () -> orderItemRepository.existsByProductId(500L));
+        queries.put("CartRepository.findByUser", () -> cartRepository.findByUser(user));
+        queries.put("CartRepository.findByUserId", () -> cartRepository.findByUserId(500L));
+        queries.put("CartItemRepository.findByProductId", () -> cartItemRepository.findByProductId(500L));
+        queries.put("ReviewRepository.findByProduct", () -> reviewRepository.findByProduct(product));
+        queries.put("FavoriteRepository.findByUserId", () -> favoriteRepository.findByUserId(500L));
+        queries.put("FavoriteRepository.findByUserIdAndProductId", () -> favoriteRepository.findByUserIdAndProductId(500L, 500L));
+        queries.put("FavoriteRepository.existsByUserIdAndProductId", () -> favoriteRepository.existsByUserIdAndProductId(500L, 500L));
+        queries.put("BlogRepository.findBySlug", () -> blogRepository.findBySlug("blog-500"));
+        queries.put("BlogRepository.findSitemapEntries", () -> blogRepository.findSitemapEntries());
+        queries.put("BlogRepository.findSitemapEntry", () -> blogRepository.findSitemapEntry(500L));
+        queries.put("BlogRepository.findAllByOrderByCreatedAtDesc", () -> blogRepository.findAllByOrderByCreatedAtDesc());
+        queries.put("BlogRepository.findByCategoryOrderByCreatedAtDesc", () -> blogRepository.findByCategoryOrderByCreatedAtDesc("Guides"));
+        queries.put("BlogRepository.findSummaries", () -> blogRepository.findSummaries(PageRequest.of(0, 20)));
+        queries.put("BlogRepository.findSummariesBefore", () -> blogRepository.findSummariesBefore(LocalDateTime.now().minusHours(500), 500L, PageRequest.of(0, 20)));
+        queries.put("BlogRepository.findSummariesByCategory", () -> blogRepository.findSummariesByCategory("Guides", PageRequest.of(0, 20)));
+        queries.put("BlogRepository.findSummariesByCategoryBefore", () -> blogRepository.findSummariesByCategoryBefore("Guides", LocalDateTime.now().minusHours(500), 500L, PageRequest.of(0, 20)));
+        queries.put("NewsletterRepository.findByEmail", () -> newsletterRepository.findByEmail("subscriber500@example.com"));
+        queries.put("NewsletterRepository.existsByEmail", () -> newsletterRepository.existsByEmail("subscriber500@example.com"));
+        queries.put("AdminRepository.findByEmail", () -> adminRepository.findByEmail("admin500@example.com"));
+        queries.put("AdminRepository.existsByEmail", () -> adminRepository.existsByEmail("admin500@example.com"));
+        // Modifying queries last, they remove seed rows
+        queries.put("OrderItemRepository.deleteByProductId", () -> inTransaction(() -> orderItemRepository.deleteByProductId(999L)));
+        queries.put("CartItemRepository.deleteByProductId", () -> inTransaction(() -> cartItemRepository.deleteByProductId(999L)));
+        queries.put("CartItemRepository.deleteByCartId", () -> inTransaction(() -> cartItemRepository.deleteByCartId(998L)));
+        queries.put("ReviewRepository.deleteByProductId", () -> inTransaction(() -> reviewRepository.deleteByProductId(999L)));
+        queries.put("FavoriteRepository.deleteByProductId", () -> inTransaction(() -> favoriteRepository.deleteByProductId(999L)));
+        queries.put("FavoriteRepository.deleteByUserIdAndProductId", () -> inTransaction(() -> favoriteRepository.deleteByUserIdAndProductId(998L, 998L)));
+
+        List<String> fullScans = new ArrayList<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            for (String sql : captureStatements(query.getValue())) {
+                for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + sql)) {
+                    String table = String.valueOf(row.get("table"));
+                    if ("ALL".equals(row.get("type")) && !table.equals(FULL_SCAN_ALLOWED.get(query.getKey()))) {
+                        fullScans.add(query.getKey() + " scans " + table + ": " + sql);
+                    }
+                }
+            }
+        }
+
+        assertTrue(fullScans.isEmpty(), "Full table scans:\n" + String.join("\n", fullScans));
+    }
+
+    private void inTransaction(Runnable action) {
+        transactionTemplate.executeWithoutResult(status -> action.run());
+    }
+
+    /**
+     * Runs the query and returns the distinct data statements it sent. Connector/J inlines bind
+     * parameters client-side, so the logged text can be EXPLAINed as is.
+     */
+    private Set<String> captureStatements(Runnable query) {
+        jdbcTemplate.execute("TRUNCATE TABLE mysql.general_log");
+        // In one transaction the query's statements, lazy loads included, share one connection
+        Long connectionId = transactionTemplate.execute(status -> {
+            query.run();
+            return jdbcTemplate.queryForObject("SELECT CONNECTION_ID()", Long.class);
+        });
+        List<String> logged = jdbcTemplate.queryForList(
+                "SELECT CONVERT(argument USING utf8mb4) FROM mysql.general_log WHERE command_type = 'Query' AND thread_id = ?",
+                String.class, connectionId);
+
+        Set<String> seenShapes = new LinkedHashSet<>();
+        Set<String> statements = new LinkedHashSet<>();
+        for (String sql : logged) {
+            String normalized = sql.trim().toLowerCase();
+            boolean dataStatement = normalized.startsWith("select") || normalized.startsWith("delete") || normalized.startsWith("update");
+            if (!dataStatement || normalized.contains("mysql.") || normalized.contains("@@")
+                    || normalized.contains("information_schema") || normalized.contains("flyway_schema_history")) {
+                continue;
+            }
+            // EXPLAIN each statement shape once, e.g. the per-order item loads differ only in the id
+            String shape = normalized.replaceAll("'[^']*'", "?").replaceAll("\\b\\d+\\b", "?");
+            if (seenShapes.add(shape)) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    private void seed() {
+        String sequence = "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + ROWS + ") ";
+        jdbcTemplate.execute("INSERT INTO users (name, email, password, reset_token, created_at) " + sequence
+                + "SELECT CONCAT('User ', n), CONCAT('user', n, '@example.com'), 'x', CONCAT('token-', n), NOW() FROM seq");
+        jdbcTemplate.execute("INSERT INTO admins (name, email, password) " + sequence
+                + "SELECT CONCAT('Admin ', n), CONCAT('admin', n, '@example.com'), 'x' FROM seq");
+        jdbcTemplate.execute("INSERT INTO products (title, price, brand_slug, is_active, in_stock, scheduled_price, "
+                + "price_start_date, price_end_date, created_at) " + sequence
+                + "SELECT CONCAT('Product ', n), 1000, CONCAT('product-', n), n % 20 <> 0, n % 10 <> 0, "
+                + "IF(n % 50 = 0, 900, NULL), IF(n % 50 = 0, NOW(), NULL), IF(n % 50 = 0, NOW() + INTERVAL 7 DAY, NULL), NOW() FROM seq");
+        jdbcTemplate.execute("INSERT INTO orders (order_number, user_id, subtotal, total, status, payment_status, shipping_name, "
+                + "shipping_phone, shipping_email, shipping_address, shipping_city, shipping_state, shipping_pincode, created_at) " + sequence
+                + "SELECT CONCAT('ORD-', n), n, 1000, 1000, 'PENDING', 'pending', 'Name', '9848012345', 'a@example.com', "
+                + "'Address', 'Vijayawada', 'Andhra Pradesh', '520001', NOW() - INTERVAL n MINUTE FROM seq");
+        jdbcTemplate.execute("INSERT INTO order_items (order_id, product_id, product_name, quantity, unit_price, total_price) " + sequence
+                + "SELECT n, n, CONCAT('Product ', n), 1, 1000, 1000 FROM seq");
+        jdbcTemplate.execute("INSERT INTO carts (user_id, created_at) " + sequence + "SELECT n, NOW() FROM seq");
+        jdbcTemplate.execute("INSERT INTO cart_items (cart_id, product_id, quantity, price) " + sequence
+                + "SELECT n, n, 1, 1000 FROM seq");
+        jdbcTemplate.execute("INSERT INTO reviews (product_id, rating, user_name, created_at) " + sequence
+                + "SELECT n, 5, 'Reviewer', NOW() FROM seq");
+        jdbcTemplate.execute("INSERT INTO favorites (user_id, product_id, added_at) " + sequence
+                + "SELECT n, n, NOW() FROM seq");
+        jdbcTemplate.execute("INSERT INTO blogs (title, slug, content, category, created_at) " + sequence
+                + "SELECT CONCAT('Blog ', n), CONCAT('blog-', n), 'content', IF(n % 2 = 0, 'Maintenance', 'Guides'), NOW() - INTERVAL n HOUR FROM seq");
+        jdbcTemplate.execute("INSERT INTO newsletter_subscribers (email, subscribed_at) " + sequence
+                + "SELECT CONCAT('subscriber', n, '@example.com'), NOW() FROM seq");
+        jdbcTemplate.execute("ANALYZE TABLE users, admins, products, orders, order_items, carts, cart_items, reviews, "
+                + "favorites, blogs, newsletter_subscribers");
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.machines.service;
+
+import com.example.machines.dto.BulkPriceChange;
+import com.example.machines.dto.BulkPriceRequest;
+import com.example.machines.dto.BulkPriceResponse;
+import com.example.machines.dto.PriceUpdateMessage;
+import com.example.machines.entity.Product;
+import com.example.machines.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a dry run previews exactly what the set-based UPDATEs then write: each mode is
+ * previewed, applied, and the stored prices compared with the preview. Runs on H2 in MySQL mode,
+ * with prices that land on a rounding half.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkprice;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Each save and bulk UPDATE commits, as in production, so the reads see what was written
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkPriceServiceTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BulkPriceService bulkPriceService;
+    private final List<PriceUpdateMessage> published = new ArrayList<>();
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        bulkPriceService = new BulkPriceService();
+        ReflectionTestUtils.setField(bulkPriceService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(bulkPriceService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(bulkPriceService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(bulkPriceService, "priceUpdateCoalescer", new PriceUpdateCoalescer() {
+            @Override
+            public void publishAll(Collection<PriceUpdateMessage> messages) {
+                published.addAll(messages);
+            }
+        });
+        bulkPriceService.init();
+
+        LocalDateTime now = LocalDateTime.now();
+        ids = new ArrayList<>();
+        // 10% off 999.95 is 899.955, 15% off 33.33 is 28.3305: both round on a half or just past it
+        ids.add(save("Plain", "999.95", null, null, null, null));
+        ids.add(save("Cheap", "33.33", null, null, null, null));
+        ids.add(save("Odd", "0.05", null, null, null, null));
+        // Active schedule: the price is held at the scheduled price, the regular one remembered
+        ids.add(save("Active", "850.00", "850.00", "1000.05", now.minusDays(1), now.plusDays(1)));
+        // Upcoming schedule: the regular price stays until the window opens
+        ids.add(save("Upcoming", "1234.55", "1100.00", "1234.55", now.plusDays(1), now.plusDays(2)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void percentPreviewMatchesUpdate() {
+        assertPreviewIsWritten(request("PERCENT", "-10"));
+    }
+
+    @Test
+    void fractionalPercentPreviewMatchesUpdate() {
+        assertPreviewIsWritten(request("PERCENT", "-15"));
+        assertPreviewIsWritten(request("PERCENT", "12.5"));
+    }
+
+    @Test
+    void amountPreviewMatchesUpdate() {
+        assertPreviewIsWritten(request("AMOUNT", "-0.04"));
+    }
+
+    @Test
+    void activeSchedulePreviewMatchesUpdate() {
+        BulkPriceRequest request = request("PERCENT", "-10");
+        request.setPriceStartDate(LocalDateTime.now().minusHours(1));
+        request.setPriceEndDate(LocalDateTime.now().plusDays(3));
+        assertPreviewIsWritten(request);
+    }
+
+    @Test
+    void upcomingSchedulePreviewMatchesUpdate() {
+        BulkPriceRequest request = request("PERCENT", "-20");
+        request.setPriceStartDate(LocalDateTime.now().plusDays(1));
+        request.setPriceEndDate(LocalDateTime.now().plusDays(3));
+        assertPreviewIsWritten(request);
+    }
+
+    @Test
+    void rejectsChangeTakingAPriceToZero() {
+        // "Odd" would be priced at 0.00, so nothing is written, not even the other products
+        BulkPriceRequest request = request("AMOUNT", "-0.05");
+        request.setDryRun(false);
+        List<BigDecimal> before = prices();
+        assertThrows(IllegalArgumentException.class, () -> bulkPriceService.apply(request));
+        assertEquals(before, prices());
+        assertTrue(published.isEmpty());
+    }
+
+    private void assertPreviewIsWritten(BulkPriceRequest request) {
+        request.setDryRun(true);
+        BulkPriceResponse preview = bulkPriceService.apply(request);
+        assertTrue(preview.isDryRun());
+        assertFalse(preview.getChanges().isEmpty());
+
+        request.setDryRun(false);
+        published.clear();
+        BulkPriceResponse applied = bulkPriceService.apply(request);
+        assertEquals(preview.getUpdated(), applied.getUpdated());
+
+        for (BulkPriceChange change : preview.getChanges()) {
+            Product product = productRepository.findById(change.getProductId()).orElseThrow();
+            BigDecimal regular = product.getOriginalPriceBeforeSchedule() != null
+                    ? product.getOriginalPriceBeforeSchedule() : product.getPrice();
+            assertEquals(0, change.getNewPrice().compareTo(product.getPrice()),
+                    product.getTitle() + ": previewed " + change.getNewPrice() + ", stored " + product.getPrice());
+            assertEquals(0, change.getNewRegularPrice().compareTo(regular),
+                    product.getTitle() + ": previewed regular " + change.getNewRegularPrice() + ", stored " + regular);
+        }
+        for (PriceUpdateMessage message : published) {
+            Product product = productRepository.findById(message.getProductId()).orElseThrow();
+            assertEquals(0, message.getNewPrice().compareTo(product.getPrice()), product.getTitle());
+        }
+    }
+
+    private List<BigDecimal> prices() {
+        return ids.stream().map(id -> productRepository.findById(id).orElseThrow().getPrice()).toList();
+    }
+
+    private BulkPriceRequest request(String adjustment, String value) {
+        BulkPriceRequest request = new BulkPriceRequest();
+        request.setIds(ids);
+        request.setAdjustment(adjustment);
+        request.setValue(new BigDecimal(value));
+        request.setPreviewLimit(BulkPriceService.MAX_PREVIEW_LIMIT);
+        return request;
+    }
+
+    private Long save(String title, String price, String scheduledPrice, String regular,
+                      LocalDateTime start, LocalDateTime end) {
+        Product product = new Product();
+        product.setTitle(title);
+        product.setPrice(new BigDecimal(price));
+        product.setScheduledPrice(scheduledPrice == null ? null : new BigDecimal(scheduledPrice));
+        product.setOriginalPriceBeforeSchedule(regular == null ? null : new BigDecimal(regular));
+        product.setPriceStartDate(start);
+        product.setPriceEndDate(end);
+        return productRepository.save(product).getId();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.machines.service;
+
+import com.example.machines.cache.ContentChangedEvent;
+import com.example.machines.dto.ProductImportResponse;
+import com.example.machines.dto.ProductRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV import parsing and validation, with the database write replaced by a recorder
+ */
+class ProductImportServiceTest {
+
+    private final List<ProductRequest> upserted = new ArrayList<>();
+    private final List<Object> published = new ArrayList<>();
+    private ProductImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        ProductService productService = new ProductService() {
+            @Override
+            public int upsertBySlug(List<ProductRequest> requests) {
+                upserted.addAll(requests);
+                return requests.size();
+            }
+        };
+        importService = new ProductImportService();
+        ReflectionTestUtils.setField(importService, "productService", productService);
+        ReflectionTestUtils.setField(importService, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(importService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(importService, "eventPublisher", (ApplicationEventPublisher) published::add);
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "workers", 2);
+        importService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void rejectsUnknownColumns() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> importCsv("title,brandSlug,colour\nA,a,red\n"));
+        assertTrue(e.getMessage().startsWith("Unknown CSV column: colour"), e.getMessage());
+    }
+
+    @Test
+    void requiresABrandSlugColumn() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> importCsv("title,price\nA,100\n"));
+        assertTrue(e.getMessage().contains("brandSlug"), e.getMessage());
+    }
+
+    @Test
+    void requiresAHeaderRow() {
+        assertThrows(IllegalArgumentException.class, () -> importCsv(""));
+    }
+
+    @Test
+    void readsQuotedMultiLineCellsAndListColumns() throws IOException {
+        ProductImportResponse response = importCsv("\uFEFF title , brandSlug,price,description,highlights\r\n"
+                + "\"Usha, Janome\",usha-janome,12500.50,\"Line one\nLine \"\"two\"\"\",Fast | Quiet|\r\n"
+                + "\r\n"
+                + "Brother,brother-x,9000,,\n");
+
+        assertEquals(2, response.getRowsRead());
+        assertEquals(2, response.getCreated());
+        assertEquals(0, response.getFailed());
+        ProductRequest first = upserted.get(0);
+        assertEquals("Usha, Janome", first.getTitle());
+        assertEquals("usha-janome", first.getBrandSlug());
+        assertEquals(new BigDecimal("12500.50"), first.getPrice());
+        assertEquals("Line one\nLine \"two\"", first.getDescription());
+        assertEquals(List.of("Fast", "Quiet"), first.getHighlights());
+        assertEquals("brother-x", upserted.get(1).getBrandSlug());
+    }
+
+    @Test
+    void reportsInvalidRowsByLineAndSkipsThem() throws IOException {
+        ProductImportResponse response = importCsv("title,brandSlug,price,specificationsJson\n"
+                + "Good,good,100,\n"
+                + ",no-title,100,\n"
+                + "\"Two\nlines\",,100,\n"
+                + "Bad price,bad-price,abc,\n"
+                + "Bad specs,bad-specs,100,[1]\n");
+
+        assertEquals(5, response.getRowsRead());
+        assertEquals(1, response.getCreated());
+        assertEquals(4, response.getFailed());
+        assertEquals(List.of("good"), upserted.stream().map(ProductRequest::getBrandSlug).toList());
+        assertEquals(List.of(3L, 4L, 6L, 7L), response.getErrors().stream().map(error -> error.getRow()).toList());
+        assertEquals("Title is required", response.getErrors().get(0).getMessage());
+        assertTrue(response.getErrors().get(1).getMessage().contains("brandSlug is required"));
+        assertTrue(response.getErrors().get(2).getMessage().startsWith("Invalid value"));
+        assertEquals("specificationsJson must be a JSON object", response.getErrors().get(3).getMessage());
+    }
+
+    @Test
+    void publishesTheChangeWhenTheUploadFailsPartWay() {
+        StringBuilder csv = new StringBuilder("title,brandSlug,price\n");
+        // Well past the reader's buffer, so several batches are written before the read fails
+        for (int i = 0; i < 1000; i++) {
+            csv.append("Machine ").append(i).append(",machine-").append(i).append(",100\n");
+        }
+        InputStream body = new SequenceInputStream(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+                });
+
+        assertThrows(IOException.class, () -> importService.importProducts(ProductImportService.Format.CSV, body));
+        assertFalse(upserted.isEmpty());
+        assertEquals(1, published.size());
+        ContentChangedEvent event = (ContentChangedEvent) published.get(0);
+        assertEquals(ContentChangedEvent.ContentType.PRODUCT, event.getType());
+        assertNull(event.getId());
+    }
+
+    private ProductImportResponse importCsv(String csv) throws IOException {
+        return importService.importProducts(ProductImportService.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.machines.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvTest {
+
+    @Test
+    void writtenRecordsReadBackUnchanged() throws IOException {
+        List<List<String>> records = List.of(
+                List.of("title", "description", "price"),
+                List.of("Plain", "no quoting needed", "100"),
+                List.of("Comma, inside", "He said \"hello\"", "2,500.00"),
+                List.of("Multi\nline", "CRLF\r\ninside", ""),
+                List.of("\"", "\"\"", ",")
+        );
+        StringWriter out = new StringWriter();
+        for (List<String> record : records) {
+            Csv.writeRecord(out, record);
+        }
+
+        assertEquals(records, readAll(out.toString()));
+    }
+
+    @Test
+    void nullFieldsAreWrittenEmpty() throws IOException {
+        StringWriter out = new StringWriter();
+        Csv.writeRecord(out, Arrays.asList("a", null, "c"));
+
+        assertEquals("a,,c\r\n", out.toString());
+        assertEquals(List.of(List.of("a", "", "c")), readAll(out.toString()));
+    }
+
+    @Test
+    void onlyFieldsThatNeedItAreQuoted() throws IOException {
+        StringWriter out = new StringWriter();
+        Csv.writeRecord(out, List.of("plain", "a,b", "say \"hi\"", "two\nlines"));
+
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\n", out.toString());
+    }
+
+    @Test
+    void readsUnixAndWindowsLineEndingsAndMissingFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e", "f")),
+                readAll("a,b\nc,d\r\ne,f"));
+    }
+
+    @Test
+    void reportsTheLineEachRecordStartsOn() throws IOException {
+        Csv.RecordReader reader = new Csv.RecordReader(new StringReader("h1,h2\n\"multi\nline\",x\nlast,y\n"));
+
+        reader.readRecord();
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(List.of("multi\nline", "x"), reader.readRecord());
+        assertEquals(2, reader.getRecordLine());
+        assertEquals(List.of("last", "y"), reader.readRecord());
+        assertEquals(4, reader.getRecordLine());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void quoteInsideAnUnquotedFieldIsKeptLiterally() throws IOException {
+        assertEquals(List.of(List.of("5\" bobbin", "x")), readAll("5\" bobbin,x\n"));
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        Csv.RecordReader reader = new Csv.RecordReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}